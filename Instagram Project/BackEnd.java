@@ -1,26 +1,56 @@
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 /**
  * Handles the backend operations for a social media platform, including:
  * user management, post creation, and interaction handling.
+ * IDs are canonical: every map key is the ID instance owned by its User or Post, which is the one
+ * that allUsers and allPosts hold.
  */
 public class BackEnd {
 
-    private FileWriter writer;                      // Writer for logging actions
+    private static final int ACTIVE_POSTS = 1 << 16; // Number of most recent posts whose seen sets are not compacted
+
+    private Writer writer;                          // Writer for logging actions
     private MyHashMap<String, User> allUsers;       // Map of all users by their unique IDs
     private MyHashMap<String, Post> allPosts;       // Map of all posts by their unique IDs
+    private FeedCache feedCache;                    // Cache of generated feeds, null if disabled
+    private QueueType queueType;                    // Priority queue used for feeds and sorting
+    private ArrayDeque<Post> recentPosts;           // Most recent posts in creation order
+    private int nextUserNumber;                     // Number to give to the next created user
+    private final int userNumberStep;               // Difference between the numbers of consecutive users
 
     /**
      * Constructs a backend system with the specified writer for logging.
      *
-     * @param writer the FileWriter object for logging operations
+     * @param writer the Writer object for logging operations
+     */
+    public BackEnd(Writer writer) {
+        this(writer, 0, 1);
+    }
+
+    /**
+     * Constructs a backend that numbers its users first, first + step, first + 2 * step and so on.
+     * Backends that share posts between them use disjoint number sequences, so user numbers stay unique.
+     *
+     * @param writer          the Writer object for logging operations
+     * @param firstUserNumber the number of the first created user
+     * @param userNumberStep  the difference between the numbers of consecutive users, or 0 for a router that
+     *                        holds no users or posts itself and overrides every command
      */
-    public BackEnd(FileWriter writer) {
+    BackEnd(Writer writer, int firstUserNumber, int userNumberStep) {
         this.writer = writer;
-        allUsers = new MyHashMap<String, User>();
-        allPosts = new MyHashMap<String, Post>();
+        this.nextUserNumber = firstUserNumber;
+        this.userNumberStep = userNumberStep;
+        queueType = QueueType.BINARY;
+        if (userNumberStep > 0) {
+            allUsers = new MyHashMap<String, User>();
+            allPosts = new MyHashMap<String, Post>();
+            recentPosts = new ArrayDeque<Post>();
+        }
     }
 
     /**
@@ -31,7 +61,8 @@ public class BackEnd {
      */
     public void createUser(String userID) throws IOException {
         if (allUsers.get(userID) == null) {
-            allUsers.add(userID, new User(userID));
+            allUsers.add(userID, new User(userID, nextUserNumber));
+            nextUserNumber += userNumberStep;
             writer.write("Created user with Id " + userID + ".\n");
             return;
         }
@@ -47,8 +78,8 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void followUser(String userID1, String userID2) throws IOException {
-        User user1 = allUsers.get(userID1);
-        User user2 = allUsers.get(userID2);
+        User user1 = findUser(userID1);
+        User user2 = findUser(userID2);
 
         if (user1 == null || user2 == null || user1 == user2) {
             writer.write("Some error occurred in follow_user.\n");
@@ -57,6 +88,8 @@ public class BackEnd {
 
         boolean done = user1.follow(user2);
         if (done) {
+            user2.addFollower();
+            if (feedCache != null) feedCache.invalidateViewer(userID1);
             writer.write(userID1 + " followed " + userID2 + ".\n");
         } else {
             writer.write("Some error occurred in follow_user.\n");
@@ -71,8 +104,8 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void unfollowUser(String userID1, String userID2) throws IOException {
-        User user1 = allUsers.get(userID1);
-        User user2 = allUsers.get(userID2);
+        User user1 = findUser(userID1);
+        User user2 = findUser(userID2);
 
         if (user1 == null || user2 == null || user1 == user2) {
             writer.write("Some error occurred in unfollow_user.\n");
@@ -81,6 +114,8 @@ public class BackEnd {
 
         boolean done = user1.unfollow(user2);
         if (done) {
+            user2.removeFollower();
+            if (feedCache != null) feedCache.invalidateViewer(userID1);
             writer.write(userID1 + " unfollowed " + userID2 + ".\n");
         } else {
             writer.write("Some error occurred in unfollow_user.\n");
@@ -96,16 +131,17 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void createPost(String userID, String postID, String content) throws IOException {
-        User user = allUsers.get(userID);
+        User user = findUser(userID);
 
-        if (user == null || allPosts.get(postID) != null) {
+        if (user == null || findPost(postID) != null) {
             writer.write("Some error occurred in create_post.\n");
             return;
         }
 
         Post post = new Post(postID, content, user);
         user.createPost(post);
-        allPosts.add(postID, post);
+        registerPost(post);
+        if (feedCache != null) feedCache.invalidateAuthor(userID);
         writer.write(userID + " created a post with Id " + postID + ".\n");
     }
 
@@ -117,8 +153,8 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void seePost(String userID, String postID) throws IOException {
-        User user = allUsers.get(userID);
-        Post post = allPosts.get(postID);
+        User user = findUser(userID);
+        Post post = findPost(postID);
 
         if (post == null || user == null) {
             writer.write("Some error occurred in see_post.\n");
@@ -126,6 +162,7 @@ public class BackEnd {
         }
 
         post.markSeen(user);
+        if (feedCache != null) feedCache.invalidateViewer(userID);
         writer.write(userID + " saw " + postID + ".\n");
     }
 
@@ -137,20 +174,16 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void seeAllPostsFromUser(String viewerID, String viewedID) throws IOException {
-        User viewer = allUsers.get(viewerID);
-        User viewed = allUsers.get(viewedID);
+        User viewer = findUser(viewerID);
+        User viewed = findUser(viewedID);
 
         if (viewer == null || viewed == null) {
             writer.write("Some error occurred in see_all_posts_from_user.\n");
             return;
         }
 
-        if (viewed.hasPost()) {
-            ArrayList<Post> posts = viewed.getPosts();
-            for (Post post : posts) {
-                post.markSeen(viewer);
-            }
-        }
+        viewer.seeAllPosts(viewed);
+        if (feedCache != null) feedCache.invalidateViewer(viewerID);
 
         writer.write(viewerID + " saw all posts of " + viewedID + ".\n");
     }
@@ -163,8 +196,8 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void pressLikeButton(String userID, String postID) throws IOException {
-        User user = allUsers.get(userID);
-        Post post = allPosts.get(postID);
+        User user = findUser(userID);
+        Post post = findPost(postID);
 
         if (post == null || user == null) {
             writer.write("Some error occurred in toggle_like.\n");
@@ -172,6 +205,10 @@ public class BackEnd {
         }
 
         boolean liked = post.toggleLike(user);
+        if (feedCache != null) {
+            feedCache.invalidateViewer(userID);
+            feedCache.invalidatePost(postID, post.getAuthor().getID(), post.getLikes());
+        }
         if (liked) {
             writer.write(userID + " liked " + postID + ".\n");
         } else {
@@ -187,79 +224,103 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void generateFeed(String userID, int count) throws IOException {
-        User user = allUsers.get(userID);
+        User user = findUser(userID);
 
         if (user == null) {
             writer.write("Some error occurred in generate_feed.\n");
             return;
         }
 
-        writer.write("Feed for " + userID + ":\n");
-        MaxHeap<Post> feed = new MaxHeap<>();
-        ArrayList<User> followedUsers = user.getFollowed().getValues();
-        for (User followedUser : followedUsers) {
-            ArrayList<Post> posts = followedUser.getPosts();
-            for (Post post : posts) {
-                if (!post.hasSeen(user)) {
-                    feed.insert(post);
-                }
+        // Answer from the cache if the feed did not change since it was generated.
+        if (feedCache != null) {
+            String cached = feedCache.get(userID, count);
+            if (cached != null) {
+                writer.write(cached);
+                return;
             }
         }
 
-        while (count > 0 && !feed.isEmpty()) {
+        StringBuilder output = new StringBuilder();
+        output.append("Feed for ").append(userID).append(":\n");
+        MaxPriorityQueue<Post> feed = collectFeed(user, count);
+        ArrayList<String> postIDs = new ArrayList<String>();
+        int lastLikes = 0;
+
+        int remaining = count;
+        while (remaining > 0 && !feed.isEmpty()) {
             Post mostLikedPost = feed.deleteMax();
-            writer.write("Post ID: " + mostLikedPost.getID() + ", Author: " + mostLikedPost.getAuthor().getID() + ", Likes: " + mostLikedPost.getLikes() + "\n");
-            count--;
+            postIDs.add(mostLikedPost.getID());
+            lastLikes = mostLikedPost.getLikes();
+            output.append("Post ID: ").append(mostLikedPost.getID()).append(", Author: ").append(mostLikedPost.getAuthor().getID()).append(", Likes: ").append(mostLikedPost.getLikes()).append("\n");
+            remaining--;
         }
 
-        if (count > 0) {
-            writer.write("No more posts available for " + userID + ".\n");
+        if (remaining > 0) {
+            output.append("No more posts available for ").append(userID).append(".\n");
         }
+
+        String rendered = output.toString();
+        if (feedCache != null) {
+            ArrayList<String> authorIDs = new ArrayList<String>();
+            for (User author : user.getFollowed().getValues()) {
+                authorIDs.add(author.getID());
+            }
+            feedCache.put(user.getID(), count, rendered, authorIDs, postIDs, lastLikes);
+        }
+        writer.write(rendered);
     }
 
     /**
      * Allows a user to scroll through their feed and optionally like posts.
+     * Posts are taken from the feed one at a time, and the seen and like updates are applied
+     * together after scrolling, which cannot change the order of the posts still in the feed.
      *
      * @param userID      the ID of the user scrolling the feed
      * @param number      the number of posts to scroll through
-     * @param likedPosts  an array indicating whether each post is liked or just viewed
+     * @param likedPosts  a bitset whose i-th bit is set if the i-th scrolled post is liked rather than just viewed
      * @throws IOException if an error occurs during writing to the log
      */
-    public void scrollThroughFeed(String userID, int number, String[] likedPosts) throws IOException {
-        User user = allUsers.get(userID);
+    public void scrollThroughFeed(String userID, int number, BitSet likedPosts) throws IOException {
+        User user = findUser(userID);
 
         if (user == null) {
             writer.write("Some error occurred in scroll_through_feed.\n");
             return;
         }
 
-        MaxHeap<Post> feed = new MaxHeap<>();
-        ArrayList<User> followedUsers = user.getFollowed().getValues();
-        for (User followedUser : followedUsers) {
-            ArrayList<Post> posts = followedUser.getPosts();
-            for (Post post : posts) {
-                if (!post.hasSeen(user)) {
-                    feed.insert(post);
-                }
-            }
-        }
+        MaxPriorityQueue<Post> feed = collectFeed(user, number);
 
         writer.write(userID + " is scrolling through feed:\n");
+        Post[] scrolledPosts = new Post[Math.max(0, Math.min(number, feed.size()))];
         int scrolled = 0;
         while (number > scrolled && !feed.isEmpty()) {
             Post mostLikedPost = feed.deleteMax();
+            scrolledPosts[scrolled] = mostLikedPost;
 
-            if (likedPosts[scrolled].equals("0")) {
-                mostLikedPost.markSeen(user);
+            if (!likedPosts.get(scrolled)) {
                 writer.write(userID + " saw " + mostLikedPost.getID() + " while scrolling.\n");
             } else {
-                mostLikedPost.toggleLike(user);
                 writer.write(userID + " saw " + mostLikedPost.getID() + " while scrolling and clicked the like button.\n");
             }
 
             scrolled++;
         }
 
+        // Apply the seen and like updates of the scrolled posts.
+        for (int i = 0; i < scrolled; i++) {
+            Post post = scrolledPosts[i];
+            if (!likedPosts.get(i)) {
+                post.markSeen(user);
+            } else {
+                post.toggleLike(user);
+                if (feedCache != null) feedCache.invalidatePost(post.getID(), post.getAuthor().getID(), post.getLikes());
+            }
+        }
+
+        if (feedCache != null && scrolled > 0) {
+            feedCache.invalidateViewer(userID);
+        }
+
         if (number > scrolled) {
             writer.write("No more posts in feed.\n");
         }
@@ -272,7 +333,7 @@ public class BackEnd {
      * @throws IOException if an error occurs during writing to the log
      */
     public void sortPosts(String userID) throws IOException {
-        User user = allUsers.get(userID);
+        User user = findUser(userID);
 
         if (user == null) {
             writer.write("Some error occurred in sort_posts.\n");
@@ -286,7 +347,7 @@ public class BackEnd {
 
         writer.write("Sorting " + userID + "'s posts:\n");
 
-        MaxHeap<Post> maxHeap = new MaxHeap<>();
+        MaxPriorityQueue<Post> maxHeap = newQueue();
         ArrayList<Post> posts = user.getPosts();
         for (Post post : posts) {
             maxHeap.insert(post);
@@ -298,4 +359,138 @@ public class BackEnd {
             writer.write(post.getID() + ", Likes: " + post.getLikes() + "\n");
         }
     }
+
+    /**
+     * Enables caching of generated feeds.
+     *
+     * @param feedCache the cache to use, or null to disable caching
+     */
+    public void setFeedCache(FeedCache feedCache) {
+        this.feedCache = feedCache;
+    }
+
+    /**
+     * Returns the cache of generated feeds.
+     *
+     * @return the feed cache, or null if caching is disabled
+     */
+    public FeedCache getFeedCache() {
+        return feedCache;
+    }
+
+    /**
+     * Selects the priority queue implementation used for feeds and sorting.
+     *
+     * @param queueType the type of priority queue to use
+     */
+    public void setQueueType(QueueType queueType) {
+        this.queueType = queueType;
+    }
+
+    /**
+     * Returns the priority queue implementation used for feeds and sorting.
+     *
+     * @return the type of priority queue in use
+     */
+    protected QueueType getQueueType() {
+        return queueType;
+    }
+
+    /**
+     * Creates an empty priority queue of the selected type.
+     *
+     * @return a new empty priority queue of posts
+     */
+    protected MaxPriorityQueue<Post> newQueue() {
+        return queueType.create();
+    }
+
+    /**
+     * Returns the backends that hold the users and posts. A plain backend holds them itself.
+     *
+     * @return the backends holding the data
+     */
+    protected BackEnd[] getPartitions() {
+        return new BackEnd[]{this};
+    }
+
+    /**
+     * Returns the map of users held by this backend.
+     *
+     * @return the users by their IDs
+     */
+    MyHashMap<String, User> getAllUsers() {
+        return allUsers;
+    }
+
+    /**
+     * Returns the map of posts held by this backend.
+     *
+     * @return the posts by their IDs
+     */
+    MyHashMap<String, Post> getAllPosts() {
+        return allPosts;
+    }
+
+    /**
+     * Returns the most recent posts, whose seen sets are not compacted yet.
+     *
+     * @return the recent posts in creation order
+     */
+    ArrayDeque<Post> getRecentPosts() {
+        return recentPosts;
+    }
+
+    /**
+     * Looks up a user by its ID.
+     *
+     * @param userID the ID of the user
+     * @return the user with the given ID, or null if there is no such user
+     */
+    protected User findUser(String userID) {
+        return allUsers.get(userID);
+    }
+
+    /**
+     * Looks up a post by its ID.
+     *
+     * @param postID the ID of the post
+     * @return the post with the given ID, or null if there is no such post
+     */
+    protected Post findPost(String postID) {
+        return allPosts.get(postID);
+    }
+
+    /**
+     * Stores a newly created post so that it can be looked up by its ID.
+     * The seen set of the post that drops out of the most recent posts is compacted.
+     *
+     * @param post the post to store
+     */
+    protected void registerPost(Post post) {
+        allPosts.add(post.getID(), post);
+
+        recentPosts.addLast(post);
+        if (recentPosts.size() > ACTIVE_POSTS) {
+            recentPosts.pollFirst().compactSeenState();
+        }
+    }
+
+    /**
+     * Collects the posts that may appear in a user's feed into a priority queue ordered by likes.
+     * Only the first {@code count} posts of the queue will be consumed by the caller, so the queue orders
+     * the posts lazily as they are taken.
+     *
+     * @param user  the user requesting the feed
+     * @param count the number of posts the caller is going to take from the queue
+     * @return a priority queue of the posts from the followed users that the user has not seen yet
+     */
+    protected MaxPriorityQueue<Post> collectFeed(User user, int count) {
+        ArrayList<User> authors = user.getFollowed().getValues();
+        int[] watermarks = new int[authors.size()];
+        for (int i = 0; i < watermarks.length; i++) {
+            watermarks[i] = user.getSeenWatermark(authors.get(i));
+        }
+        return new UnseenPostFeed(user, authors, watermarks, queueType);
+    }
 }
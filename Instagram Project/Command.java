@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * A parsed input line of the Instagram-like app, ready to be executed on a backend.
+ */
+public class Command {
+
+    /**
+     * Marks the end of the input in a stream of commands.
+     */
+    public static final Command END = new Command("", new String[0], 0, null);
+
+    private final String operation;   // Name of the operation, such as "create_user"
+    private final String[] arguments; // String arguments of the operation
+    private final int number;         // Numeric argument of generate_feed and scroll_through_feed
+    private final BitSet likedPosts;  // Like flags of scroll_through_feed, null for other operations
+
+    /**
+     * Constructs a parsed command.
+     *
+     * @param operation the name of the operation
+     * @param arguments the string arguments of the operation
+     * @param number    the numeric argument of the operation, if it has one
+     * @param likedPosts the like flags of scroll_through_feed, null for other operations
+     */
+    private Command(String operation, String[] arguments, int number, BitSet likedPosts) {
+        this.operation = operation;
+        this.arguments = arguments;
+        this.number = number;
+        this.likedPosts = likedPosts;
+    }
+
+    /**
+     * Parses one input line. Lines with an unknown operation or missing arguments are skipped.
+     *
+     * @param line the input line
+     * @return the parsed command, or null if the line should be skipped
+     */
+    public static Command parse(String line) {
+        ArrayList<String> tokens = tokenize(line);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        String operation = tokens.get(0);
+        switch (operation) {
+            case "create_user":
+            case "sort_posts":
+                return withArguments(operation, tokens, 1);
+            case "follow_user":
+            case "unfollow_user":
+            case "see_post":
+            case "see_all_posts_from_user":
+            case "toggle_like":
+                return withArguments(operation, tokens, 2);
+            case "create_post":
+                return withArguments(operation, tokens, 3);
+            case "generate_feed":
+            case "scroll_through_feed": {
+                if (tokens.size() < 3) {
+                    return null;
+                }
+                int number;
+                try {
+                    number = Integer.parseInt(tokens.get(2));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+
+                // The number is followed by the like flags of scroll_through_feed.
+                // Like the Scanner based reader, a line without flags yields a single empty flag, which counts as a like.
+                BitSet likedPosts = null;
+                if (operation.equals("scroll_through_feed")) {
+                    likedPosts = new BitSet();
+                    if (tokens.size() == 3) {
+                        likedPosts.set(0);
+                    }
+                    for (int i = 3; i < tokens.size(); i++) {
+                        if (!tokens.get(i).equals("0")) {
+                            likedPosts.set(i - 3);
+                        }
+                    }
+                }
+                return new Command(operation, new String[]{tokens.get(1)}, number, likedPosts);
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Builds a command that takes the given number of string arguments.
+     *
+     * @param operation the name of the operation
+     * @param tokens    the tokens of the line, starting with the operation
+     * @param count     the number of string arguments
+     * @return the command, or null if the line does not have enough arguments
+     */
+    private static Command withArguments(String operation, ArrayList<String> tokens, int count) {
+        if (tokens.size() <= count) {
+            return null;
+        }
+        String[] arguments = new String[count];
+        for (int i = 0; i < count; i++) {
+            arguments[i] = tokens.get(i + 1);
+        }
+        return new Command(operation, arguments, 0, null);
+    }
+
+    /**
+     * Parses the like flags of scroll_through_feed, which follow the number on the same line.
+     * Flags are separated by single spaces; a flag of "0" means the post is only viewed, anything else means it is liked.
+     *
+     * @param flags the rest of the line after the number
+     * @return a bitset whose i-th bit is set if the i-th scrolled post is liked
+     */
+    public static BitSet parseLikeFlags(String flags) {
+        BitSet likedPosts = new BitSet();
+        int length = flags.length();
+        int start = 0;
+        while (start < length && Character.isWhitespace(flags.charAt(start))) {
+            start++;
+        }
+
+        int index = 0;
+        for (int i = start; i <= length; i++) {
+            if (i == length || flags.charAt(i) == ' ') {
+                boolean viewed = i - start == 1 && flags.charAt(start) == '0';
+                if (!viewed) {
+                    likedPosts.set(index);
+                }
+                index++;
+                start = i + 1;
+            }
+        }
+        return likedPosts;
+    }
+
+    /**
+     * Splits a line into whitespace separated tokens.
+     *
+     * @param line the input line
+     * @return the tokens of the line
+     */
+    private static ArrayList<String> tokenize(String line) {
+        ArrayList<String> tokens = new ArrayList<>();
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                tokens.add(line.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Executes this command on a backend.
+     *
+     * @param backEnd the backend to execute the command on
+     * @throws IOException if an error occurs during writing to the log
+     */
+    public void execute(BackEnd backEnd) throws IOException {
+        switch (operation) {
+            case "create_user":
+                backEnd.createUser(arguments[0]);
+                break;
+            case "follow_user":
+                backEnd.followUser(arguments[0], arguments[1]);
+                break;
+            case "unfollow_user":
+                backEnd.unfollowUser(arguments[0], arguments[1]);
+                break;
+            case "create_post":
+                backEnd.createPost(arguments[0], arguments[1], arguments[2]);
+                break;
+            case "see_post":
+                backEnd.seePost(arguments[0], arguments[1]);
+                break;
+            case "see_all_posts_from_user":
+                backEnd.seeAllPostsFromUser(arguments[0], arguments[1]);
+                break;
+            case "toggle_like":
+                backEnd.pressLikeButton(arguments[0], arguments[1]);
+                break;
+            case "generate_feed":
+                backEnd.generateFeed(arguments[0], number);
+                break;
+            case "scroll_through_feed":
+                backEnd.scrollThroughFeed(arguments[0], number, likedPosts);
+                break;
+            case "sort_posts":
+                backEnd.sortPosts(arguments[0]);
+                break;
+        }
+    }
+}
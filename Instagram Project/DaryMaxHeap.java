@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * Implementation of a generic d-ary MaxHeap over a plain array.
+ * A wider heap is shallower, so deleteMax touches fewer levels and each level's children are adjacent in memory.
+ * Like MaxHeap, insertions only append until the first removal, which then builds the heap in linear time.
+ *
+ * @param <AnyType> the type of elements stored in the heap, which must implement Comparable
+ */
+public class DaryMaxHeap<AnyType extends Comparable<? super AnyType>> implements MaxPriorityQueue<AnyType> {
+
+    private final int d;         // Number of children of each node
+    private Object[] heap;       // Internal array representation of the heap, the root is at index 0
+    private int currentSize;     // Current number of elements in the heap
+    private boolean built;       // Flag indicating if the heap has been built
+
+    /**
+     * Constructs a new d-ary heap with an initial capacity of 1024.
+     *
+     * @param d the number of children of each node, must be at least 2
+     */
+    public DaryMaxHeap(int d) {
+        this(d, 1024);
+    }
+
+    /**
+     * Constructs a new d-ary heap with room for the given number of elements before it has to grow.
+     *
+     * @param d            the number of children of each node, must be at least 2
+     * @param expectedSize the number of elements the heap is expected to hold
+     */
+    public DaryMaxHeap(int d, int expectedSize) {
+        this.d = d;
+        heap = new Object[Math.max(expectedSize, 1)];
+        currentSize = 0;
+        built = false;
+    }
+
+    /**
+     * Returns the element at the given index.
+     *
+     * @param index the index of the element
+     * @return the element at the index
+     */
+    @SuppressWarnings("unchecked")
+    private AnyType at(int index) {
+        return (AnyType) heap[index];
+    }
+
+    /**
+     * Returns the current number of elements in the heap.
+     *
+     * @return the size of the heap
+     */
+    @Override
+    public int size() {
+        return currentSize;
+    }
+
+    /**
+     * Checks if the heap is empty.
+     *
+     * @return true if the heap is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return currentSize == 0;
+    }
+
+    /**
+     * Inserts a new element into the heap. If the heap is not built, it simply adds the element.
+     *
+     * @param x the element to insert
+     */
+    @Override
+    public void insert(AnyType x) {
+        // Enlarge the heap if necessary
+        if (currentSize == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+
+        int hole = currentSize++;
+
+        // If not built, heapify first
+        if (!built) {
+            heap[hole] = x;
+            return;
+        }
+
+        // Percolate up
+        while (hole > 0) {
+            int parent = (hole - 1) / d;
+            if (x.compareTo(at(parent)) <= 0)
+                break;
+            heap[hole] = heap[parent];
+            hole = parent;
+        }
+        heap[hole] = x;
+    }
+
+    /**
+     * Removes and returns the maximum element from the heap.
+     *
+     * @return the maximum element in the heap
+     */
+    @Override
+    public AnyType deleteMax() {
+        AnyType maxItem = getMax();
+        currentSize--;
+        heap[0] = heap[currentSize];
+        heap[currentSize] = null;
+        if (currentSize > 0)
+            percolateDown(0);
+        return maxItem;
+    }
+
+    /**
+     * Returns the maximum element in the heap without removing it.
+     *
+     * @return the maximum element in the heap
+     */
+    @Override
+    public AnyType getMax() {
+        // If not built, heapify first
+        if (!built) {
+            buildHeap();
+        }
+        return at(0);
+    }
+
+    /**
+     * Percolates down the element at the specified index to restore the max-heap property.
+     *
+     * @param hole the index of the element to percolate down
+     */
+    private void percolateDown(int hole) {
+        AnyType temp = at(hole);
+
+        while (true) {
+            int first = hole * d + 1;
+            if (first >= currentSize)
+                break;
+
+            // Find the biggest child
+            int last = Math.min(first + d, currentSize);
+            int child = first;
+            for (int i = first + 1; i < last; i++) {
+                if (at(i).compareTo(at(child)) > 0)
+                    child = i;
+            }
+
+            if (at(child).compareTo(temp) > 0) {
+                heap[hole] = heap[child];
+                hole = child;
+            } else {
+                break;
+            }
+        }
+
+        heap[hole] = temp;
+    }
+
+    /**
+     * Builds the heap (heapify) by ensuring all elements satisfy the max-heap property.
+     */
+    private void buildHeap() {
+        for (int i = (currentSize - 2) / d; i >= 0; i--)
+            percolateDown(i);
+        built = true;
+    }
+}
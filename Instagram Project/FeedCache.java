@@ -0,0 +1,409 @@
+import java.util.ArrayList;
+
+/**
+ * A bounded cache for the results of generate_feed, evicting the least recently used feed when full.
+ * A cached feed is identified by its viewer and the requested post count.
+ * Entries are invalidated by the operations that can change them:
+ * changes to the viewer's followed users or seen posts drop every feed of that viewer,
+ * new posts of an author drop every feed of the users following that author,
+ * and a like change of a post drops the feeds that contain the post. A feed that is full, holding as many posts
+ * as requested, is also dropped when a post of a followed author not in it now ranks above its last post,
+ * since the post would push that one out.
+ */
+public class FeedCache {
+
+    /**
+     * Represents a single cached feed, which is also a node of the LRU list.
+     */
+    static class Entry {
+        final String key;      // Key of the entry in the cache
+        final String viewerID; // ID of the user the feed belongs to
+        final ArrayList<String> authorIDs; // IDs of the followed users the entry is indexed under
+        final ArrayList<String> postIDs;   // IDs of the posts of the feed the entry is indexed under
+        final String feed;     // Rendered output of generate_feed
+        final boolean full;    // True if the feed holds as many posts as requested
+        final String lastPostID; // ID of the last post of the feed, null if it has none
+        final int lastLikes;   // Likes of the last post of the feed when it was generated
+        boolean live;          // False once the entry is evicted or invalidated
+        Entry prev;            // More recently used entry
+        Entry next;            // Less recently used entry
+
+        /**
+         * Constructs a new cache entry.
+         *
+         * @param key        the key of the entry
+         * @param viewerID   the ID of the user the feed belongs to
+         * @param authorIDs  the IDs of the users the viewer follows
+         * @param postIDs    the IDs of the posts in the feed, in feed order
+         * @param feed       the rendered feed
+         * @param full       true if the feed holds as many posts as requested
+         * @param lastPostID the ID of the last post of the feed, null if it has none
+         * @param lastLikes  the likes of the last post of the feed
+         */
+        Entry(String key, String viewerID, ArrayList<String> authorIDs, ArrayList<String> postIDs,
+              String feed, boolean full, String lastPostID, int lastLikes) {
+            this.key = key;
+            this.viewerID = viewerID;
+            this.authorIDs = authorIDs;
+            this.postIDs = postIDs;
+            this.feed = feed;
+            this.full = full;
+            this.lastPostID = lastPostID;
+            this.lastLikes = lastLikes;
+            this.live = true;
+        }
+
+        /**
+         * Checks whether a post not in this feed would now take a place in it.
+         *
+         * @param postID the ID of the post
+         * @param likes  the current likes of the post
+         * @return true if the feed is full and the post ranks above its last post
+         */
+        boolean outranked(String postID, int likes) {
+            if (!full || lastPostID == null) {
+                return false;
+            }
+            return likes > lastLikes || (likes == lastLikes && postID.compareTo(lastPostID) > 0);
+        }
+    }
+
+    private final int capacity;                               // Maximum number of cached feeds
+    private final MyHashMap<String, Entry> entries;           // Cached feeds by key
+    private final MyHashMap<String, ArrayList<Entry>> byViewer; // Feeds of each viewer
+    private final MyHashMap<String, ArrayList<Entry>> byAuthor; // Feeds that may contain the posts of each author
+    private final MyHashMap<String, ArrayList<Entry>> byPost;   // Feeds that contain each post
+    private Entry head;                                       // Most recently used entry
+    private Entry tail;                                       // Least recently used entry
+    private int size;                                         // Number of live entries
+
+    private long hits;           // Number of lookups answered from the cache
+    private long misses;         // Number of lookups that were not in the cache
+    private long evictions;      // Number of entries dropped because the cache was full
+    private long invalidations;  // Number of entries dropped because they became stale
+
+    /**
+     * Constructs an empty cache holding at most the given number of feeds.
+     *
+     * @param capacity the maximum number of cached feeds, must be at least 1
+     */
+    public FeedCache(int capacity) {
+        this.capacity = capacity;
+        entries = new MyHashMap<String, Entry>();
+        byViewer = new MyHashMap<String, ArrayList<Entry>>();
+        byAuthor = new MyHashMap<String, ArrayList<Entry>>();
+        byPost = new MyHashMap<String, ArrayList<Entry>>();
+    }
+
+    /**
+     * Returns the key of the feed of a viewer with the given post count.
+     *
+     * @param viewerID the ID of the user requesting the feed
+     * @param count    the number of posts requested
+     * @return the key of the feed
+     */
+    private static String key(String viewerID, int count) {
+        return viewerID + " " + count;
+    }
+
+    /**
+     * Returns the cached feed of a viewer and marks it as recently used.
+     *
+     * @param viewerID the ID of the user requesting the feed
+     * @param count    the number of posts requested
+     * @return the rendered feed, or null if it is not cached
+     */
+    public String get(String viewerID, int count) {
+        Entry entry = entries.get(key(viewerID, count));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        unlink(entry);
+        linkFirst(entry);
+        return entry.feed;
+    }
+
+    /**
+     * Caches the feed of a viewer, evicting the least recently used feed if the cache is full.
+     *
+     * @param viewerID  the ID of the user requesting the feed
+     * @param count     the number of posts requested
+     * @param feed      the rendered feed
+     * @param authorIDs the IDs of the users the viewer follows
+     * @param postIDs   the IDs of the posts in the feed, in feed order
+     * @param lastLikes the likes of the last post in the feed, ignored if there is none
+     */
+    public void put(String viewerID, int count, String feed, ArrayList<String> authorIDs, ArrayList<String> postIDs, int lastLikes) {
+        String key = key(viewerID, count);
+        Entry old = entries.get(key);
+        if (old != null) {
+            drop(old);
+        }
+
+        if (size == capacity) {
+            drop(tail);
+            evictions++;
+        }
+
+        String lastPostID = postIDs.isEmpty() ? null : postIDs.get(postIDs.size() - 1);
+        Entry entry = new Entry(key, viewerID, authorIDs, postIDs, feed, postIDs.size() >= count, lastPostID, lastLikes);
+        entries.add(key, entry);
+        linkFirst(entry);
+        size++;
+
+        register(byViewer, viewerID, entry);
+        for (String authorID : authorIDs) {
+            register(byAuthor, authorID, entry);
+        }
+        for (String postID : postIDs) {
+            register(byPost, postID, entry);
+        }
+    }
+
+    /**
+     * Drops every cached feed of a viewer. Called when the viewer's followed users or seen posts change.
+     *
+     * @param viewerID the ID of the user whose feeds are stale
+     */
+    public void invalidateViewer(String viewerID) {
+        invalidate(byViewer.remove(viewerID));
+    }
+
+    /**
+     * Drops every cached feed that may contain the posts of an author. Called when the author creates a post.
+     *
+     * @param authorID the ID of the user whose followers' feeds are stale
+     */
+    public void invalidateAuthor(String authorID) {
+        invalidate(byAuthor.remove(authorID));
+    }
+
+    /**
+     * Drops the cached feeds that a like change of a post affects: the feeds that contain the post,
+     * and the full feeds following its author whose last post it now outranks.
+     *
+     * @param postID   the ID of the post whose likes changed
+     * @param authorID the ID of the author of the post
+     * @param likes    the likes of the post after the change
+     */
+    public void invalidatePost(String postID, String authorID, int likes) {
+        invalidate(byPost.remove(postID));
+
+        ArrayList<Entry> followers = byAuthor.get(authorID);
+        if (followers == null) {
+            return;
+        }
+        // Walk backwards, since dropping an entry removes it from this list.
+        for (int i = followers.size() - 1; i >= 0; i--) {
+            Entry entry = followers.get(i);
+            if (entry.outranked(postID, likes)) {
+                drop(entry);
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Drops the live entries of an index list that was already taken out of its index.
+     *
+     * @param list the entries to drop, may be null
+     */
+    private void invalidate(ArrayList<Entry> list) {
+        if (list == null) {
+            return;
+        }
+
+        for (Entry entry : list) {
+            if (entry.live) {
+                drop(entry);
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to the index list of a user.
+     *
+     * @param index the index to add the entry to
+     * @param id    the ID of the user
+     * @param entry the entry to add
+     */
+    private static void register(MyHashMap<String, ArrayList<Entry>> index, String id, Entry entry) {
+        ArrayList<Entry> list = index.get(id);
+        if (list == null) {
+            list = new ArrayList<Entry>();
+            index.add(id, list);
+        }
+        list.add(entry);
+    }
+
+    /**
+     * Removes an entry from the index list of a user, and the list itself once it is empty.
+     * The list may already be gone when it is the one being invalidated.
+     *
+     * @param index the index to remove the entry from
+     * @param id    the ID of the user
+     * @param entry the entry to remove
+     */
+    private static void unregister(MyHashMap<String, ArrayList<Entry>> index, String id, Entry entry) {
+        ArrayList<Entry> list = index.get(id);
+        if (list == null) {
+            return;
+        }
+
+        list.remove(entry);
+        if (list.isEmpty()) {
+            index.remove(id);
+        }
+    }
+
+    /**
+     * Removes an entry from the cache and from every index list it was registered in,
+     * so the indexes only ever hold live entries.
+     *
+     * @param entry the entry to remove
+     */
+    private void drop(Entry entry) {
+        entry.live = false;
+        entries.remove(entry.key);
+        unlink(entry);
+        size--;
+
+        unregister(byViewer, entry.viewerID, entry);
+        for (String authorID : entry.authorIDs) {
+            unregister(byAuthor, authorID, entry);
+        }
+        for (String postID : entry.postIDs) {
+            unregister(byPost, postID, entry);
+        }
+    }
+
+    /**
+     * Inserts an entry at the front of the LRU list.
+     *
+     * @param entry the entry to insert
+     */
+    private void linkFirst(Entry entry) {
+        entry.prev = null;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        head = entry;
+        if (tail == null) {
+            tail = entry;
+        }
+    }
+
+    /**
+     * Removes an entry from the LRU list.
+     *
+     * @param entry the entry to remove
+     */
+    private void unlink(Entry entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            head = entry.next;
+        }
+
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        } else {
+            tail = entry.prev;
+        }
+
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    /**
+     * Returns the map of cached feeds.
+     *
+     * @return the entries by their keys
+     */
+    MyHashMap<String, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the indexes from viewers, authors and posts to the entries they can invalidate.
+     *
+     * @return the viewer, author and post indexes
+     */
+    ArrayList<MyHashMap<String, ArrayList<Entry>>> getIndexes() {
+        ArrayList<MyHashMap<String, ArrayList<Entry>>> indexes = new ArrayList<>();
+        indexes.add(byViewer);
+        indexes.add(byAuthor);
+        indexes.add(byPost);
+        return indexes;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that were not in the cache.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the ratio of lookups answered from the cache.
+     *
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the number of entries dropped because the cache was full.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of entries dropped because they became stale.
+     *
+     * @return the invalidation count
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the number of feeds currently cached.
+     *
+     * @return the size of the cache
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a one-line summary of the cache counters.
+     *
+     * @return the summary
+     */
+    public String report() {
+        return String.format("feed cache: size=%d/%d hits=%d misses=%d hitRate=%.4f evictions=%d invalidations=%d",
+                size, capacity, hits, misses, getHitRate(), evictions, invalidations);
+    }
+}
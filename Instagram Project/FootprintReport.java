@@ -0,0 +1,319 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Estimates how much heap the data structures of a backend occupy.
+ * The estimates assume a 64-bit JVM with compressed references: 12 byte object headers,
+ * 4 byte references and sizes rounded up to 8 bytes. Strings are counted once, with the object that owns them:
+ * IDs with their user or post, and contents with their post.
+ * Lists are counted at the capacity their growth policy reaches for their current size, which is exact for lists
+ * that were only ever added to. The feed cache index lists and the recent posts deque also shrink, so their
+ * backing arrays can be larger than counted. Left out are the objects of fixed size, such as the backends,
+ * the feed cache object and the shard worker threads, and the small Integers of the router, which are cached.
+ */
+public class FootprintReport {
+
+    private static final int HEADER = 12;          // Bytes of an object header
+    private static final int ARRAY_HEADER = 16;    // Bytes of an array header, including the length
+    private static final int REF = 4;              // Bytes of a reference
+
+    private static final long HASH_MAP = align(HEADER + REF + 4 + 4);       // MyHashMap object
+    private static final long ARRAY_LIST = align(HEADER + 4 + 4 + REF);     // ArrayList object
+    private static final long HASH_NODE = align(HEADER + REF + REF + 4 + REF); // MyHashMap.HashNode
+    private static final long BOXED_INT = align(HEADER + 4);                // Integer
+    private static final long USER = align(HEADER + REF + 4 + 4 + REF + REF + REF); // User object
+    private static final long POST = align(HEADER + REF + REF + 4 + REF + REF + REF + 4); // Post object
+    private static final long SEEN_SET = align(HEADER + REF + REF + 4 + 1); // SeenSet object
+    private static final long ARRAY_DEQUE = align(HEADER + REF + 4 + 4);   // ArrayDeque object
+    private static final long CACHE_ENTRY = align(HEADER + 6 * REF + 1 + 4 + 1 + REF + REF); // FeedCache.Entry object
+
+    /**
+     * Accumulated size of one kind of structure.
+     */
+    private static class Totals {
+        final String name;     // Name of the structure
+        long instances;        // Number of instances
+        long entries;          // Number of stored entries
+        long buckets;          // Number of buckets, for hash maps
+        long emptyBuckets;     // Number of buckets without entries, for hash maps
+        long bytes;            // Estimated bytes
+
+        /**
+         * Constructs empty totals.
+         *
+         * @param name the name of the structure
+         */
+        Totals(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds a hash map to the totals.
+         *
+         * @param map the map to add, may be null
+         * @param valueBytes the bytes of each value that is owned by the map
+         * @return the estimated bytes of the map
+         */
+        long addMap(MyHashMap<?, ?> map, long valueBytes) {
+            if (map == null)
+                return 0;
+
+            long size = mapBytes(map) + map.size() * valueBytes;
+            instances++;
+            entries += map.size();
+            buckets += map.getBucketCount();
+            emptyBuckets += map.countEmptyBuckets();
+            bytes += size;
+            return size;
+        }
+
+        /**
+         * Formats the totals as a report line.
+         *
+         * @return the report line
+         */
+        String line() {
+            String line = String.format("  %-22s %10d instances %12d entries %14d bytes", name, instances, entries, bytes);
+            if (buckets > 0) {
+                line += String.format("  load %.2f, %d of %d buckets empty (%.1f%%)", (double) entries / buckets,
+                        emptyBuckets, buckets, 100.0 * emptyBuckets / buckets);
+            }
+            return line;
+        }
+    }
+
+    /**
+     * A user or post together with its estimated size.
+     */
+    private static class Weighted {
+        final String id;     // ID of the user or post
+        final long bytes;    // Estimated bytes owned by it
+
+        /**
+         * Constructs a weighted item.
+         *
+         * @param id the ID of the user or post
+         * @param bytes the estimated bytes owned by it
+         */
+        Weighted(String id, long bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Builds the footprint report of a backend.
+     *
+     * @param backEnd the backend to measure
+     * @param topN the number of heaviest users and posts to list, none if it is not positive
+     * @return the report text
+     */
+    public static String report(BackEnd backEnd, int topN) {
+        Totals userIndex = new Totals("allUsers");
+        Totals postIndex = new Totals("allPosts");
+        Totals users = new Totals("User objects");
+        Totals followed = new Totals("User.followed");
+        Totals postLists = new Totals("User.posts");
+        Totals watermarks = new Totals("User.seenWatermarks");
+        Totals posts = new Totals("Post objects");
+        Totals seenBy = new Totals("Post.seenBy");
+        Totals likedBy = new Totals("Post.likedBy");
+        Totals recentPosts = new Totals("recentPosts");
+        Totals postShards = new Totals("router postShards");
+        Totals cacheMap = new Totals("FeedCache.entries");
+        Totals cacheEntries = new Totals("FeedCache entries");
+        Totals cacheIndexes = new Totals("FeedCache indexes");
+
+        ArrayList<Weighted> heaviestUsers = new ArrayList<>();
+        ArrayList<Weighted> heaviestPosts = new ArrayList<>();
+
+        for (BackEnd partition : backEnd.getPartitions()) {
+            userIndex.addMap(partition.getAllUsers(), 0);
+            postIndex.addMap(partition.getAllPosts(), 0);
+
+            ArrayDeque<Post> recent = partition.getRecentPosts();
+            recentPosts.instances++;
+            recentPosts.entries += recent.size();
+            recentPosts.bytes += ARRAY_DEQUE + arrayBytes(dequeCapacity(recent.size()), REF);
+
+            for (User user : partition.getAllUsers().getValues()) {
+                long own = USER + stringBytes(user.getID());
+                users.instances++;
+                users.bytes += own;
+
+                own += followed.addMap(user.getFollowed(), 0);
+                own += watermarks.addMap(user.getSeenWatermarks(), BOXED_INT);
+
+                long list = listBytes(user.getPosts().size());
+                postLists.instances++;
+                postLists.entries += user.getPosts().size();
+                postLists.bytes += list;
+                own += list;
+
+                keepHeaviest(heaviestUsers, new Weighted(user.getID(), own), topN);
+            }
+
+            for (Post post : partition.getAllPosts().getValues()) {
+                long own = POST + stringBytes(post.getID()) + stringBytes(post.getContent());
+                posts.instances++;
+                posts.bytes += own;
+
+                SeenSet seen = post.getSeenBy();
+                long seenBytes = SEEN_SET + (seen.getTableLength() == 0 ? 0 : arrayBytes(seen.getTableLength(), 4))
+                        + (seen.getCompactedSize() == 0 ? 0 : arrayBytes(seen.getCompactedSize(), 4));
+                seenBy.instances++;
+                seenBy.entries += seen.size();
+                seenBy.bytes += seenBytes;
+                own += seenBytes;
+
+                own += likedBy.addMap(post.getLikedBy(), 0);
+
+                keepHeaviest(heaviestPosts, new Weighted(post.getID(), own), topN);
+            }
+        }
+
+        if (backEnd instanceof ShardedBackEnd) {
+            postShards.addMap(((ShardedBackEnd) backEnd).getPostShards(), 0);
+        }
+
+        FeedCache feedCache = backEnd.getFeedCache();
+        if (feedCache != null) {
+            cacheMap.addMap(feedCache.getEntries(), 0);
+            for (FeedCache.Entry entry : feedCache.getEntries().getValues()) {
+                cacheEntries.instances++;
+                cacheEntries.entries += entry.postIDs.size();
+                cacheEntries.bytes += CACHE_ENTRY + stringBytes(entry.key) + stringBytes(entry.feed)
+                        + listBytes(entry.authorIDs.size()) + listBytes(entry.postIDs.size());
+            }
+            for (MyHashMap<String, ArrayList<FeedCache.Entry>> index : feedCache.getIndexes()) {
+                cacheIndexes.addMap(index, 0);
+                for (ArrayList<FeedCache.Entry> list : index.getValues()) {
+                    cacheIndexes.bytes += listBytes(list.size());
+                }
+            }
+        }
+
+        Totals[] all = {userIndex, postIndex, recentPosts, postShards, users, followed, postLists, watermarks,
+                posts, seenBy, likedBy, cacheMap, cacheEntries, cacheIndexes};
+        long total = 0;
+        StringBuilder report = new StringBuilder("Estimated heap footprint:\n");
+        for (Totals totals : all) {
+            report.append(totals.line()).append('\n');
+            total += totals.bytes;
+        }
+        report.append(String.format("  %-22s %14d bytes%n", "total", total));
+
+        report.append("Heaviest users:\n");
+        for (Weighted user : heaviestUsers) {
+            report.append(String.format("  %-22s %14d bytes%n", user.id, user.bytes));
+        }
+        report.append("Heaviest posts:\n");
+        for (Weighted post : heaviestPosts) {
+            report.append(String.format("  %-22s %14d bytes%n", post.id, post.bytes));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Keeps the heaviest items in a list sorted by descending size.
+     *
+     * @param heaviest the current heaviest items
+     * @param item the item to consider
+     * @param topN the maximum number of items to keep, nothing is kept if it is not positive
+     */
+    private static void keepHeaviest(ArrayList<Weighted> heaviest, Weighted item, int topN) {
+        if (topN <= 0)
+            return;
+        if (heaviest.size() == topN && heaviest.get(topN - 1).bytes >= item.bytes)
+            return;
+
+        int i = heaviest.size();
+        while (i > 0 && heaviest.get(i - 1).bytes < item.bytes)
+            i--;
+        heaviest.add(i, item);
+        if (heaviest.size() > topN)
+            heaviest.remove(topN);
+    }
+
+    /**
+     * Estimates the bytes of a hash map with its bucket array and chain nodes, excluding keys and values.
+     *
+     * @param map the map to estimate
+     * @return the estimated bytes
+     */
+    private static long mapBytes(MyHashMap<?, ?> map) {
+        return HASH_MAP + ARRAY_LIST + arrayBytes(map.getBucketCount(), REF) + map.size() * HASH_NODE;
+    }
+
+    /**
+     * Estimates the bytes of an ArrayList of references with its backing array.
+     *
+     * @param size the number of elements in the list
+     * @return the estimated bytes
+     */
+    private static long listBytes(int size) {
+        return ARRAY_LIST + (size == 0 ? 0 : arrayBytes(listCapacity(size), REF));
+    }
+
+    /**
+     * Returns the capacity an ArrayList created empty reaches when elements are added one by one:
+     * 10 on the first addition, then growing by half whenever it is full.
+     *
+     * @param size the number of elements in the list
+     * @return the capacity of the backing array
+     */
+    private static long listCapacity(int size) {
+        long capacity = 10;
+        while (capacity < size) {
+            capacity += capacity >> 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the capacity an ArrayDeque created empty reaches when elements are added one by one:
+     * 17 slots at first, growing by the capacity plus 2 while it is small and by half after that.
+     * The deque always keeps one slot free, so it is larger than its size.
+     *
+     * @param size the number of elements in the deque
+     * @return the length of the backing array
+     */
+    private static long dequeCapacity(int size) {
+        long capacity = 17;
+        while (capacity <= size) {
+            capacity += capacity < 64 ? capacity + 2 : capacity >> 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Estimates the bytes of a Latin-1 string.
+     *
+     * @param s the string to estimate
+     * @return the estimated bytes
+     */
+    private static long stringBytes(String s) {
+        return align(HEADER + REF + 4 + 1 + 1) + arrayBytes(s.length(), 1);
+    }
+
+    /**
+     * Estimates the bytes of an array.
+     *
+     * @param length the length of the array
+     * @param elementBytes the bytes of each element
+     * @return the estimated bytes
+     */
+    private static long arrayBytes(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    /**
+     * Rounds a size up to a multiple of 8 bytes.
+     *
+     * @param bytes the size to round
+     * @return the rounded size
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Random;
+
+/**
+ * Compares the priority queue implementations on the access patterns of the backend.
+ * Usage: java HeapBenchmark [elements] [rounds]
+ */
+public class HeapBenchmark {
+
+    public static void main(String[] args) {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // Posts are ordered by likes first, so the keys are drawn from a small range with many ties,
+        // broken by the position like posts are broken by their IDs. The keys are longs so that they cannot overflow.
+        Random random = new Random(250);
+        Long[] keys = new Long[elements];
+        for (int i = 0; i < elements; i++) {
+            keys[i] = random.nextInt(1000) * (long) elements + i;
+        }
+
+        System.out.println("workload,heap,elements,millis");
+        for (int round = 0; round < rounds; round++) {
+            for (QueueType type : QueueType.values()) {
+                report("drain", type, elements, drain(type, keys, elements));
+                report("top10", type, elements, drain(type, keys, 10));
+                report("mixed", type, elements, mixed(type, keys));
+            }
+        }
+    }
+
+    /**
+     * Inserts every key, then removes the given number of maximums, like generate_feed and sort_posts.
+     *
+     * @param type the priority queue implementation
+     * @param keys the keys to insert
+     * @param removals the number of maximums to remove
+     * @return the elapsed time in nanoseconds
+     */
+    private static long drain(QueueType type, Long[] keys, int removals) {
+        long start = System.nanoTime();
+        MaxPriorityQueue<Long> queue = type.create();
+        for (Long key : keys) {
+            queue.insert(key);
+        }
+        long checksum = 0;
+        for (int i = 0; i < removals && !queue.isEmpty(); i++) {
+            checksum += queue.deleteMax();
+        }
+        return consume(checksum, System.nanoTime() - start);
+    }
+
+    /**
+     * Interleaves insertions and removals after the queue has been built.
+     *
+     * @param type the priority queue implementation
+     * @param keys the keys to insert
+     * @return the elapsed time in nanoseconds
+     */
+    private static long mixed(QueueType type, Long[] keys) {
+        long start = System.nanoTime();
+        MaxPriorityQueue<Long> queue = type.create();
+        int half = keys.length / 2;
+        for (int i = 0; i < half; i++) {
+            queue.insert(keys[i]);
+        }
+        long checksum = queue.getMax();
+        for (int i = half; i < keys.length; i++) {
+            queue.insert(keys[i]);
+            checksum += queue.deleteMax();
+        }
+        return consume(checksum, System.nanoTime() - start);
+    }
+
+    /**
+     * Keeps the checksum alive so the measured work cannot be optimized away.
+     *
+     * @param checksum the checksum of the removed keys
+     * @param elapsed the elapsed time in nanoseconds
+     * @return the elapsed time
+     */
+    private static long consume(long checksum, long elapsed) {
+        if (checksum == 42) {
+            System.out.print("");
+        }
+        return elapsed;
+    }
+
+    /**
+     * Prints a measurement as a CSV row.
+     *
+     * @param workload the name of the workload
+     * @param type the priority queue implementation
+     * @param elements the number of elements in the workload
+     * @param nanos the elapsed time in nanoseconds
+     */
+    private static void report(String workload, QueueType type, int elements, long nanos) {
+        System.out.printf("%s,%s,%d,%.2f%n", workload, type, elements, nanos / 1e6);
+    }
+}
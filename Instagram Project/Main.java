@@ -1,23 +1,123 @@
 import java.io.File;
+import java.util.BitSet;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Instagram-Like App
  *
+ * Usage: java Main input.txt output.txt [--shards=N] [--feed-cache=N] [--heap=binary|4ary|pairing]
+ *                                       [--pipeline] [--footprint=N]
+ * --pipeline parses the input on a reader thread and writes the output on a writer thread, see {@link PipelinedReplay}.
+ * Both modes give the same output for well-formed input, but they differ on malformed lines: the pipeline parses
+ * each line on its own and drops a line with missing arguments, while the plain replay reads tokens with a Scanner,
+ * so a command with missing arguments takes them from the following lines.
+ *
  * @author Kagan Can, Student ID: 2022400240
  * @since Date: 15.11.2024
  */
 public class Main {
     public static void main(String[] args) throws IOException {
 
-        // Initialize a file handle and a scanner for the input, a file writer for the output.
-        File fh = new File(args[0]);
-        Scanner scanner = new Scanner(fh);
-        FileWriter writer = new FileWriter(args[1]);
-        BackEnd backEnd = new BackEnd(writer);
+        // Initialize a file writer for the output.
+        FileWriter fileWriter = new FileWriter(args[1]);
+
+        BackEnd backEnd = run(args[0], fileWriter, args, 2);
+
+        if (backEnd.getFeedCache() != null) {
+            System.err.println(backEnd.getFeedCache().report());
+        }
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--footprint=")) {
+                int topN = Integer.parseInt(args[i].substring("--footprint=".length()));
+                System.err.print(FootprintReport.report(backEnd, topN));
+            }
+        }
+        if (backEnd instanceof ShardedBackEnd) {
+            ((ShardedBackEnd) backEnd).shutdown();
+        }
+    }
+
+    /**
+     * Replays an input file on a backend configured by the optional arguments and closes the output.
+     * With --pipeline the replay runs on a {@link PipelinedReplay}, which reads ahead and writes behind on helper
+     * threads, otherwise the commands are read and executed on the calling thread. The other optional arguments are those of {@link #createBackEnd}.
+     *
+     * @param inputPath the path of the input file
+     * @param output    the writer for the output, closed when the replay finishes
+     * @param args      the command line arguments
+     * @param first     the index of the first optional argument
+     * @return the backend the commands were executed on, still running if it is sharded
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    public static BackEnd run(String inputPath, Writer output, String[] args, int first) throws IOException {
+        boolean pipelined = false;
+        for (int i = first; i < args.length; i++) {
+            if (args[i].equals("--pipeline")) {
+                pipelined = true;
+            }
+        }
+
+        // In pipelined mode the backend writes into the pipeline, which owns the output writer.
+        if (pipelined) {
+            PipelinedReplay pipeline = new PipelinedReplay(output);
+            BackEnd backEnd = createBackEnd(pipeline.getOutput(), args, first);
+            pipeline.run(inputPath, backEnd);
+            return backEnd;
+        }
+
+        BackEnd backEnd = createBackEnd(output, args, first);
+        try (Scanner scanner = new Scanner(new File(inputPath))) {
+            replay(scanner, backEnd);
+        }
+        output.close();
+        return backEnd;
+    }
+
+    /**
+     * Creates a backend configured by the optional arguments:
+     * --shards=N, --feed-cache=N and --heap=binary|4ary|pairing. Other arguments are ignored.
+     *
+     * @param writer the writer for the backend's output
+     * @param args   the command line arguments
+     * @param first  the index of the first optional argument
+     * @return the configured backend
+     */
+    public static BackEnd createBackEnd(Writer writer, String[] args, int first) {
+        int shardCount = 1;
+        int feedCacheSize = 0;
+        QueueType queueType = QueueType.BINARY;
+        for (int i = first; i < args.length; i++) {
+            if (args[i].startsWith("--shards=")) {
+                shardCount = Integer.parseInt(args[i].substring("--shards=".length()));
+            } else if (args[i].startsWith("--feed-cache=")) {
+                feedCacheSize = Integer.parseInt(args[i].substring("--feed-cache=".length()));
+            } else if (args[i].startsWith("--heap=")) {
+                queueType = QueueType.fromName(args[i].substring("--heap=".length()));
+            }
+        }
+
+        BackEnd backEnd = shardCount > 1 ? new ShardedBackEnd(writer, shardCount) : new BackEnd(writer);
+        backEnd.setQueueType(queueType);
+        if (feedCacheSize > 0) {
+            backEnd.setFeedCache(new FeedCache(feedCacheSize));
+        }
+        return backEnd;
+    }
+
+    /**
+     * Reads the commands from the scanner and executes them on the backend one by one.
+     * Arguments are read as tokens, so a command missing arguments takes them from the following lines;
+     * only a command cut off by the end of the input is skipped.
+     *
+     * @param scanner the scanner of the input
+     * @param backEnd the backend to execute the commands on
+     * @throws IOException if an error occurs during writing to the log
+     */
+    public static void replay(Scanner scanner, BackEnd backEnd) throws IOException {
 
         // Read the input file.
         while (scanner.hasNextLine()) {
@@ -77,7 +177,7 @@ public class Main {
                     case "scroll_through_feed": {
                         String userID = scanner.next();
                         int number = scanner.nextInt();
-                        String[] likedPosts = scanner.nextLine().stripLeading().split(" ");
+                        BitSet likedPosts = Command.parseLikeFlags(scanner.nextLine());
                         backEnd.scrollThroughFeed(userID, number, likedPosts);
                         break;
                     }
@@ -92,7 +192,5 @@ public class Main {
             catch (NoSuchElementException ignored) {
             }
         }
-
-        writer.close();
     }
 }
\ No newline at end of file
@@ -5,7 +5,7 @@ import java.util.ArrayList;
  *
  * @param <AnyType> the type of elements stored in the heap, which must implement Comparable
  */
-public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
+public class MaxHeap<AnyType extends Comparable<? super AnyType>> implements MaxPriorityQueue<AnyType> {
 
     private int capacity;              // Initial capacity of the heap
     ArrayList<AnyType> heap;           // Internal array representation of the heap
@@ -16,8 +16,18 @@ public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
      * Constructs a new MaxHeap with an initial capacity of 1024.
      */
     public MaxHeap() {
+        this(1023);
+    }
+
+    /**
+     * Constructs a new MaxHeap with room for the given number of elements before it has to grow.
+     * Index 0 is kept free for percolating up, so the internal storage holds one more slot.
+     *
+     * @param expectedSize the number of elements the heap is expected to hold
+     */
+    public MaxHeap(int expectedSize) {
         currentSize = 0;
-        capacity = 1024;
+        capacity = Math.max(expectedSize, 1) + 1;
         built = false;
         heap = new ArrayList<>(capacity);
 
@@ -27,19 +37,16 @@ public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
     }
 
     /**
-     * Enlarges the heap's internal storage to the specified size and copies the elements.
+     * Enlarges the heap's internal storage to the specified size, keeping the elements in place.
      *
      * @param size the new capacity of the heap
      */
     private void enlargeHeap(int size) {
-        ArrayList<AnyType> newHeap = new ArrayList<>(size);
+        heap.ensureCapacity(size);
 
-        for (int i = 0; i < size; i++) {
+        while (heap.size() < size) {
             heap.add(null);
         }
-
-        newHeap.addAll(heap);
-        heap = newHeap;
     }
 
     /**
@@ -47,6 +54,7 @@ public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
      *
      * @return the size of the heap
      */
+    @Override
     public int size() {
         return currentSize;
     }
@@ -56,6 +64,7 @@ public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
      *
      * @return true if the heap is empty, false otherwise
      */
+    @Override
     public boolean isEmpty() {
         return currentSize == 0;
     }
@@ -91,6 +100,7 @@ public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
      *
      * @param x the element to insert
      */
+    @Override
     public void insert(AnyType x) {
         // Enlarge the heap if necessary
         if (currentSize == heap.size() - 1)
@@ -115,6 +125,7 @@ public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
      *
      * @return the maximum element in the heap
      */
+    @Override
     public AnyType deleteMax() {
         // If not built, heapify first
         if (!built) {
@@ -132,6 +143,7 @@ public class MaxHeap<AnyType extends Comparable<? super AnyType>> {
      *
      * @return the maximum element in the heap
      */
+    @Override
     public AnyType getMax() {
         // If not built, heapify first
         if (!built) {
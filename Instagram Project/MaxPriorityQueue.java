@@ -0,0 +1,42 @@
+/**
+ * A priority queue that always gives back its largest element first.
+ *
+ * @param <AnyType> the type of elements stored in the queue, which must implement Comparable
+ */
+public interface MaxPriorityQueue<AnyType extends Comparable<? super AnyType>> {
+
+    /**
+     * Inserts a new element into the queue.
+     *
+     * @param x the element to insert
+     */
+    void insert(AnyType x);
+
+    /**
+     * Removes and returns the maximum element from the queue.
+     *
+     * @return the maximum element in the queue
+     */
+    AnyType deleteMax();
+
+    /**
+     * Returns the maximum element in the queue without removing it.
+     *
+     * @return the maximum element in the queue
+     */
+    AnyType getMax();
+
+    /**
+     * Returns the current number of elements in the queue.
+     *
+     * @return the size of the queue
+     */
+    int size();
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    boolean isEmpty();
+}
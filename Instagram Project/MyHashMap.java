@@ -67,6 +67,38 @@ public class MyHashMap<K, V> {
         return vals;
     }
 
+    /**
+     * Returns the number of key-value pairs in the hash map.
+     *
+     * @return the size of the hash map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of buckets of the hash map.
+     *
+     * @return the current capacity of the bucket array
+     */
+    public int getBucketCount() {
+        return numBuckets;
+    }
+
+    /**
+     * Counts the buckets that hold no nodes.
+     *
+     * @return the number of empty buckets
+     */
+    public int countEmptyBuckets() {
+        int empty = 0;
+        for (HashNode<K, V> headNode : bucketArray) {
+            if (headNode == null)
+                empty++;
+        }
+        return empty;
+    }
+
     /**
      * Checks if the hash map is empty.
      *
@@ -87,18 +119,30 @@ public class MyHashMap<K, V> {
     }
 
     /**
-     * Determines the bucket index for a given key.
+     * Determines the bucket index for a given hash code.
      *
-     * @param key the key to find the bucket index for
+     * @param hashCode the hash code of the key to find the bucket index for
      * @return the index of the bucket
      */
-    private int getBucketIndex(K key) {
-        int hashCode = hashCode(key);
+    private int getBucketIndex(int hashCode) {
         int index = hashCode % numBuckets;
         index = index < 0 ? index * -1 : index; // Ensure non-negative index
         return index;
     }
 
+    /**
+     * Checks if a node holds the given key. The cached hash codes are compared first, so equals
+     * only runs on keys with the same hash, and String.equals itself returns at once for a shared instance.
+     *
+     * @param node the node to check
+     * @param key the key to look for
+     * @param hashCode the hash code of the key
+     * @return true if the node holds the key, false otherwise
+     */
+    private boolean matches(HashNode<K, V> node, K key, int hashCode) {
+        return node.hashCode == hashCode && node.key.equals(key);
+    }
+
     /**
      * Removes a key-value pair from the hash map.
      *
@@ -106,15 +150,15 @@ public class MyHashMap<K, V> {
      * @return the value associated with the removed key, or null if the key is not found
      */
     public V remove(K key) {
-        int bucketIndex = getBucketIndex(key);
         int hashCode = hashCode(key);
+        int bucketIndex = getBucketIndex(hashCode);
 
         HashNode<K, V> head = bucketArray.get(bucketIndex);
         HashNode<K, V> prev = null;
 
         // Search for the key in the chain
         while (head != null) {
-            if (head.key.equals(key) && hashCode == head.hashCode)
+            if (matches(head, key, hashCode))
                 break;
 
             prev = head;
@@ -142,14 +186,14 @@ public class MyHashMap<K, V> {
      * @return the value associated with the key, or null if the key is not found
      */
     public V get(K key) {
-        int bucketIndex = getBucketIndex(key);
         int hashCode = hashCode(key);
+        int bucketIndex = getBucketIndex(hashCode);
 
         HashNode<K, V> head = bucketArray.get(bucketIndex);
 
         // Search for the key in the chain
         while (head != null) {
-            if (head.key.equals(key) && head.hashCode == hashCode)
+            if (matches(head, key, hashCode))
                 return head.value;
             head = head.next;
         }
@@ -164,13 +208,13 @@ public class MyHashMap<K, V> {
      * @param value the value to be associated with the key
      */
     public void add(K key, V value) {
-        int bucketIndex = getBucketIndex(key);
         int hashCode = hashCode(key);
+        int bucketIndex = getBucketIndex(hashCode);
         HashNode<K, V> head = bucketArray.get(bucketIndex);
 
         // Check if the key already exists
         while (head != null) {
-            if (head.key.equals(key) && head.hashCode == hashCode) {
+            if (matches(head, key, hashCode)) {
                 head.value = value; // Update value
                 return;
             }
@@ -192,20 +236,23 @@ public class MyHashMap<K, V> {
 
     /**
      * Doubles the capacity of the hash map and rehashes all key-value pairs.
+     * The existing nodes are moved to their new buckets using their cached hash codes.
      */
     public void rehash(){
         ArrayList<HashNode<K, V>> temp = bucketArray;
-        bucketArray = new ArrayList<>();
         numBuckets = 2 * numBuckets;
-        size = 0;
+        bucketArray = new ArrayList<>(numBuckets);
 
         for (int i = 0; i < numBuckets; i++)
             bucketArray.add(null);
 
         for (HashNode<K, V> headNode : temp) {
             while (headNode != null) {
-                add(headNode.key, headNode.value);
-                headNode = headNode.next;
+                HashNode<K, V> next = headNode.next;
+                int bucketIndex = getBucketIndex(headNode.hashCode);
+                headNode.next = bucketArray.get(bucketIndex);
+                bucketArray.set(bucketIndex, headNode);
+                headNode = next;
             }
         }
     }
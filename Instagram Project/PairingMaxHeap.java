@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+
+/**
+ * Implementation of a generic pairing heap ordered as a max heap.
+ * Insertion takes constant time, while deleteMax pairs up the children of the root.
+ *
+ * @param <AnyType> the type of elements stored in the heap, which must implement Comparable
+ */
+public class PairingMaxHeap<AnyType extends Comparable<? super AnyType>> implements MaxPriorityQueue<AnyType> {
+
+    /**
+     * Represents a single node of the heap, linked to its first child and its next sibling.
+     *
+     * @param <AnyType> the type of the element
+     */
+    private static class PairNode<AnyType> {
+        AnyType element;           // The element stored in this node
+        PairNode<AnyType> child;   // The first child of this node
+        PairNode<AnyType> sibling; // The next sibling of this node
+
+        /**
+         * Constructs a new node without children.
+         *
+         * @param element the element of the node
+         */
+        PairNode(AnyType element) {
+            this.element = element;
+        }
+    }
+
+    private PairNode<AnyType> root;                         // Root of the heap, holding the maximum
+    private int currentSize;                                // Current number of elements in the heap
+    private final ArrayList<PairNode<AnyType>> pairs;       // Reused buffer for the pairing passes
+
+    /**
+     * Constructs a new empty pairing heap.
+     */
+    public PairingMaxHeap() {
+        root = null;
+        currentSize = 0;
+        pairs = new ArrayList<>();
+    }
+
+    /**
+     * Returns the current number of elements in the heap.
+     *
+     * @return the size of the heap
+     */
+    @Override
+    public int size() {
+        return currentSize;
+    }
+
+    /**
+     * Checks if the heap is empty.
+     *
+     * @return true if the heap is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return currentSize == 0;
+    }
+
+    /**
+     * Inserts a new element into the heap.
+     *
+     * @param x the element to insert
+     */
+    @Override
+    public void insert(AnyType x) {
+        root = link(root, new PairNode<>(x));
+        currentSize++;
+    }
+
+    /**
+     * Returns the maximum element in the heap without removing it.
+     *
+     * @return the maximum element in the heap
+     */
+    @Override
+    public AnyType getMax() {
+        return root.element;
+    }
+
+    /**
+     * Removes and returns the maximum element from the heap.
+     *
+     * @return the maximum element in the heap
+     */
+    @Override
+    public AnyType deleteMax() {
+        AnyType maxItem = root.element;
+        root = combineChildren(root.child);
+        currentSize--;
+        return maxItem;
+    }
+
+    /**
+     * Links two heaps by making the root with the smaller element the first child of the other.
+     *
+     * @param first the root of the first heap, may be null
+     * @param second the root of the second heap, may be null
+     * @return the root of the linked heap
+     */
+    private PairNode<AnyType> link(PairNode<AnyType> first, PairNode<AnyType> second) {
+        if (first == null)
+            return second;
+        if (second == null)
+            return first;
+
+        if (second.element.compareTo(first.element) > 0) {
+            PairNode<AnyType> temp = first;
+            first = second;
+            second = temp;
+        }
+
+        second.sibling = first.child;
+        first.child = second;
+        first.sibling = null;
+        return first;
+    }
+
+    /**
+     * Combines the children of a removed root with the standard two-pass pairing.
+     *
+     * @param firstChild the first child of the removed root
+     * @return the root of the combined heap
+     */
+    private PairNode<AnyType> combineChildren(PairNode<AnyType> firstChild) {
+        // First pass: link the children in pairs from left to right.
+        pairs.clear();
+        PairNode<AnyType> current = firstChild;
+        while (current != null) {
+            PairNode<AnyType> first = current;
+            PairNode<AnyType> second = current.sibling;
+            current = second == null ? null : second.sibling;
+
+            first.sibling = null;
+            if (second != null)
+                second.sibling = null;
+            pairs.add(link(first, second));
+        }
+
+        // Second pass: link the pairs from right to left.
+        PairNode<AnyType> combined = null;
+        for (int i = pairs.size() - 1; i >= 0; i--) {
+            combined = link(pairs.get(i), combined);
+        }
+        pairs.clear();
+        return combined;
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Replays an input file through a backend with read-ahead parsing and asynchronous write-behind.
+ * A reader thread parses lines into commands, the calling thread executes them one by one in input order,
+ * and a writer thread encodes and writes the produced text to the output file.
+ * The backend still builds its output strings on the executing thread; only the copying into the file is moved off it.
+ * The stages are connected by single-producer single-consumer ring buffers, so the output order is unchanged.
+ * Every line is parsed on its own, so a malformed line is skipped whole, unlike the Scanner replay of Main.
+ */
+public class PipelinedReplay {
+
+    private static final int COMMAND_QUEUE_SIZE = 1 << 14;  // Parsed commands waiting to be executed
+    private static final int CHUNK_QUEUE_SIZE = 1 << 6;     // Output chunks waiting to be written
+    private static final int CHUNK_SIZE = 1 << 16;          // Number of characters in an output chunk
+
+    private final SpscRingBuffer<Command> commands;    // Parser to executor
+    private final SpscRingBuffer<char[]> chunks;       // Executor to writer
+    private final ChunkWriter output;                  // Writer given to the backend
+    private final Writer fileWriter;                   // Writer of the output file
+    private volatile IOException failure;              // First error raised by a helper thread
+
+    /**
+     * A writer that collects the backend's output into chunks and hands them to the writer thread.
+     */
+    private class ChunkWriter extends Writer {
+
+        private char[] chunk = new char[CHUNK_SIZE];  // Chunk being filled
+        private int length = 0;                       // Number of characters in the chunk
+
+        /**
+         * Appends characters to the current chunk, publishing full chunks.
+         *
+         * @param cbuf the characters to write
+         * @param off  the offset of the first character
+         * @param len  the number of characters
+         */
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            while (len > 0) {
+                int n = Math.min(len, CHUNK_SIZE - length);
+                System.arraycopy(cbuf, off, chunk, length, n);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == CHUNK_SIZE) {
+                    publish();
+                }
+            }
+        }
+
+        /**
+         * Appends a string to the current chunk without copying it into a temporary array.
+         *
+         * @param str the string to write
+         * @param off the offset of the first character
+         * @param len the number of characters
+         */
+        @Override
+        public void write(String str, int off, int len) {
+            while (len > 0) {
+                int n = Math.min(len, CHUNK_SIZE - length);
+                str.getChars(off, off + n, chunk, length);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == CHUNK_SIZE) {
+                    publish();
+                }
+            }
+        }
+
+        /**
+         * Hands the current chunk to the writer thread and starts a new one.
+         */
+        private void publish() {
+            if (length == 0) {
+                return;
+            }
+            char[] full = length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length);
+            chunks.put(full);
+            chunk = new char[CHUNK_SIZE];
+            length = 0;
+        }
+
+        /**
+         * Publishes the characters written so far.
+         */
+        @Override
+        public void flush() {
+            publish();
+        }
+
+        /**
+         * Publishes the remaining characters and signals the end of the output.
+         */
+        @Override
+        public void close() {
+            publish();
+            chunks.put(new char[0]);
+        }
+    }
+
+    /**
+     * Constructs a pipeline that writes to the given output file.
+     *
+     * @param fileWriter the writer of the output file, closed when the replay finishes
+     */
+    public PipelinedReplay(Writer fileWriter) {
+        this.fileWriter = fileWriter;
+        commands = new SpscRingBuffer<>(COMMAND_QUEUE_SIZE);
+        chunks = new SpscRingBuffer<>(CHUNK_QUEUE_SIZE);
+        output = new ChunkWriter();
+    }
+
+    /**
+     * Returns the writer that the backend must use for its output.
+     *
+     * @return the writer feeding the output stage
+     */
+    public Writer getOutput() {
+        return output;
+    }
+
+    /**
+     * Replays an input file through the backend and waits until all output is written.
+     *
+     * @param inputPath the path of the input file
+     * @param backEnd   the backend, constructed with {@link #getOutput()}
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    public void run(String inputPath, BackEnd backEnd) throws IOException {
+        Thread reader = new Thread(() -> parse(inputPath), "replay-reader");
+        Thread writer = new Thread(this::write, "replay-writer");
+        reader.setDaemon(true);
+        writer.setDaemon(true);
+        reader.start();
+        writer.start();
+
+        // Execute the commands in input order on this thread.
+        Command command;
+        while ((command = commands.take()) != Command.END) {
+            command.execute(backEnd);
+        }
+        output.close();
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the output", e);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reader stage: parses the input file line by line.
+     *
+     * @param inputPath the path of the input file
+     */
+    private void parse(String inputPath) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputPath), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Command command = Command.parse(line);
+                if (command != null) {
+                    commands.put(command);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            commands.put(Command.END);
+        }
+    }
+
+    /**
+     * Writer stage: writes the output chunks to the file until the end marker arrives.
+     */
+    private void write() {
+        try {
+            char[] chunk;
+            while ((chunk = chunks.take()).length > 0) {
+                fileWriter.write(chunk);
+            }
+            fileWriter.close();
+        } catch (IOException e) {
+            failure = e;
+            // Keep draining so the executing thread never blocks on a full queue.
+            while (chunks.take().length > 0) {
+            }
+        }
+    }
+}
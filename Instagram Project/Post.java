@@ -6,9 +6,10 @@ public class Post implements Comparable<Post> {
     private final String ID;                   // ID of the post
     private final String content;             // Content of the post
     private int likes;                        // Number of likes the post has received
-    private MyHashMap<String, User> seenBy;   // HashMap of users who have seen the post
+    private SeenSet seenBy;                   // Set of the numbers of users who have seen the post
     private MyHashMap<String, User> likedBy;  // HashMap of users who have liked the post
     private final User author;                // Author of the post
+    private final int index;                  // Position of the post among the author's posts
 
     /**
      * Constructs a new post with the given ID, content, and author.
@@ -21,8 +22,9 @@ public class Post implements Comparable<Post> {
         this.ID = ID;
         this.content = content;
         this.author = author;
+        this.index = author.getPosts().size();
         likes = 0;
-        seenBy = new MyHashMap<String, User>();
+        seenBy = new SeenSet();
         likedBy = new MyHashMap<String, User>();
     }
 
@@ -33,7 +35,29 @@ public class Post implements Comparable<Post> {
      * @return true if the user has seen the post, false otherwise
      */
     public boolean hasSeen(User user) {
-        return (seenBy.get(user.getID()) != null);
+        return hasSeen(user, user.getSeenWatermark(author));
+    }
+
+    /**
+     * Checks whether a given user has seen this post, given the user's seen watermark of the author.
+     *
+     * @param user      the user to check
+     * @param watermark the number of the author's first posts the user saw all at once
+     * @return true if the user has seen the post, false otherwise
+     */
+    public boolean hasSeen(User user, int watermark) {
+        return index < watermark || isMarkedSeen(user);
+    }
+
+    /**
+     * Checks whether a given user has seen this post individually, ignoring the posts
+     * the user saw all at once through see_all_posts_from_user.
+     *
+     * @param user the user to check
+     * @return true if the post is marked as seen by the user, false otherwise
+     */
+    public boolean isMarkedSeen(User user) {
+        return seenBy.contains(user.getNumber());
     }
 
     /**
@@ -42,8 +66,18 @@ public class Post implements Comparable<Post> {
      * @param user the user to mark as having seen the post
      */
     public void markSeen(User user) {
-        if (!hasSeen(user)) {
-            seenBy.add(user.getID(), user);
+        markSeen(user, user.getSeenWatermark(author));
+    }
+
+    /**
+     * Marks the given user as having seen this post, given the user's seen watermark of the author.
+     *
+     * @param user      the user to mark as having seen the post
+     * @param watermark the number of the author's first posts the user saw all at once
+     */
+    public void markSeen(User user, int watermark) {
+        if (!hasSeen(user, watermark)) {
+            seenBy.add(user.getNumber());
         }
     }
 
@@ -54,7 +88,18 @@ public class Post implements Comparable<Post> {
      * @return true if the post is now liked by the user, false if the like was removed
      */
     public boolean toggleLike(User user) {
-        markSeen(user);
+        return toggleLike(user, user.getSeenWatermark(author));
+    }
+
+    /**
+     * Toggles the like status of the given user on this post, given the user's seen watermark of the author.
+     *
+     * @param user      the user toggling their like
+     * @param watermark the number of the author's first posts the user saw all at once
+     * @return true if the post is now liked by the user, false if the like was removed
+     */
+    public boolean toggleLike(User user, int watermark) {
+        markSeen(user, watermark);
 
         if (likedBy.get(user.getID()) == null) {
             likedBy.add(user.getID(), user);
@@ -67,6 +112,40 @@ public class Post implements Comparable<Post> {
         return false;
     }
 
+    /**
+     * Compacts the set of users who have seen this post, once the post is no longer recent.
+     */
+    public void compactSeenState() {
+        seenBy.compact();
+    }
+
+    /**
+     * Returns the set of users who have seen this post individually.
+     *
+     * @return the seen set of the post
+     */
+    public SeenSet getSeenBy() {
+        return seenBy;
+    }
+
+    /**
+     * Returns the set of users who have liked this post.
+     *
+     * @return the map of users who liked the post
+     */
+    public MyHashMap<String, User> getLikedBy() {
+        return likedBy;
+    }
+
+    /**
+     * Returns the content of this post.
+     *
+     * @return the content of the post
+     */
+    public String getContent() {
+        return content;
+    }
+
     /**
      * Returns the unique identifier of this post.
      *
@@ -76,6 +155,15 @@ public class Post implements Comparable<Post> {
         return ID;
     }
 
+    /**
+     * Returns the position of this post among the posts of its author.
+     *
+     * @return the index of the post in the author's post list
+     */
+    public int getIndex() {
+        return index;
+    }
+
     /**
      * Returns the number of likes this post has received.
      *
@@ -0,0 +1,66 @@
+/**
+ * The priority queue implementations that the backend can use for feeds and sorting.
+ */
+public enum QueueType {
+
+    BINARY,    // Binary heap, see MaxHeap
+    FOUR_ARY,  // 4-ary heap, see DaryMaxHeap
+    PAIRING;   // Pairing heap, see PairingMaxHeap
+
+    /**
+     * Creates an empty priority queue of this type.
+     *
+     * @param <AnyType> the type of elements stored in the queue
+     * @return a new empty priority queue
+     */
+    public <AnyType extends Comparable<? super AnyType>> MaxPriorityQueue<AnyType> create() {
+        switch (this) {
+            case FOUR_ARY:
+                return new DaryMaxHeap<>(4);
+            case PAIRING:
+                return new PairingMaxHeap<>();
+            default:
+                return new MaxHeap<>();
+        }
+    }
+
+    /**
+     * Creates an empty priority queue of this type sized for the given number of elements.
+     * The array heaps allocate only that much up front, which keeps many small queues cheap;
+     * the pairing heap has no storage to size.
+     *
+     * @param <AnyType>    the type of elements stored in the queue
+     * @param expectedSize the number of elements the queue is expected to hold, it still grows beyond it
+     * @return a new empty priority queue
+     */
+    public <AnyType extends Comparable<? super AnyType>> MaxPriorityQueue<AnyType> create(int expectedSize) {
+        switch (this) {
+            case FOUR_ARY:
+                return new DaryMaxHeap<>(4, expectedSize);
+            case PAIRING:
+                return new PairingMaxHeap<>();
+            default:
+                return new MaxHeap<>(expectedSize);
+        }
+    }
+
+    /**
+     * Returns the queue type with the given name, as written on the command line.
+     *
+     * @param name one of "binary", "4ary" or "pairing"
+     * @return the queue type with the given name
+     * @throws IllegalArgumentException if there is no queue type with the given name
+     */
+    public static QueueType fromName(String name) {
+        switch (name) {
+            case "binary":
+                return BINARY;
+            case "4ary":
+                return FOUR_ARY;
+            case "pairing":
+                return PAIRING;
+            default:
+                throw new IllegalArgumentException("Unknown heap type: " + name);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+/**
+ * A set of users, identified by their numbers, who have seen a post.
+ * Recent additions go to a small open addressing table of ints. Once the post ages out of active feeds,
+ * {@link #compact()} moves them into a sorted int array, which takes 4 bytes per user and is searched with binary search.
+ * Users that see an aged post later are collected in the table again and merged into the array as it grows.
+ */
+public class SeenSet {
+
+    private static final int MIN_TABLE_SIZE = 8;   // Initial length of the table
+
+    private int[] compacted;    // Sorted user numbers moved out of the table, null if none
+    private int[] table;        // Open addressing table storing user number + 1, 0 means empty, null if none
+    private int tableSize;      // Number of users in the table
+    private boolean aged;       // True once the set has been compacted, then the table merges itself when it grows
+
+    /**
+     * Checks whether the set contains a user.
+     *
+     * @param number the number of the user
+     * @return true if the user is in the set, false otherwise
+     */
+    public boolean contains(int number) {
+        if (table != null) {
+            int mask = table.length - 1;
+            for (int i = slot(number, mask); table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == number + 1)
+                    return true;
+            }
+        }
+
+        return compacted != null && Arrays.binarySearch(compacted, number) >= 0;
+    }
+
+    /**
+     * Adds a user to the set.
+     *
+     * @param number the number of the user
+     * @return true if the user was added, false if the user was already in the set
+     */
+    public boolean add(int number) {
+        if (contains(number))
+            return false;
+
+        if (table == null) {
+            table = new int[MIN_TABLE_SIZE];
+        } else if ((tableSize + 1) * 2 > table.length) {
+            resize(table.length * 2);
+        }
+
+        insert(table, number);
+        tableSize++;
+
+        // An aged set merges its table once the table is a quarter of the array, which keeps merges amortized constant.
+        if (aged && tableSize >= Math.max(MIN_TABLE_SIZE, getCompactedSize() / 4)) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Moves the users in the table into the sorted array and releases the table.
+     */
+    public void compact() {
+        aged = true;
+        if (table == null)
+            return;
+
+        int[] added = new int[tableSize];
+        int count = 0;
+        for (int entry : table) {
+            if (entry != 0)
+                added[count++] = entry - 1;
+        }
+        Arrays.sort(added);
+
+        // Merge the two sorted arrays into an array of the exact size.
+        int[] old = compacted == null ? new int[0] : compacted;
+        int[] merged = new int[old.length + added.length];
+        int i = 0, j = 0, k = 0;
+        while (i < old.length && j < added.length)
+            merged[k++] = old[i] < added[j] ? old[i++] : added[j++];
+        while (i < old.length)
+            merged[k++] = old[i++];
+        while (j < added.length)
+            merged[k++] = added[j++];
+
+        compacted = merged;
+        table = null;
+        tableSize = 0;
+    }
+
+    /**
+     * Returns the number of users in the set.
+     *
+     * @return the size of the set
+     */
+    public int size() {
+        return tableSize + (compacted == null ? 0 : compacted.length);
+    }
+
+    /**
+     * Returns the number of users stored in the sorted array.
+     *
+     * @return the number of compacted users
+     */
+    public int getCompactedSize() {
+        return compacted == null ? 0 : compacted.length;
+    }
+
+    /**
+     * Returns the length of the open addressing table.
+     *
+     * @return the number of slots of the table, 0 if there is no table
+     */
+    public int getTableLength() {
+        return table == null ? 0 : table.length;
+    }
+
+    /**
+     * Rebuilds the table with a new length.
+     *
+     * @param length the new length of the table, a power of two
+     */
+    private void resize(int length) {
+        int[] old = table;
+        table = new int[length];
+        for (int entry : old) {
+            if (entry != 0)
+                insert(table, entry - 1);
+        }
+    }
+
+    /**
+     * Stores a user number in a table that has a free slot.
+     *
+     * @param target the table to insert into
+     * @param number the number of the user
+     */
+    private static void insert(int[] target, int number) {
+        int mask = target.length - 1;
+        int i = slot(number, mask);
+        while (target[i] != 0)
+            i = (i + 1) & mask;
+        target[i] = number + 1;
+    }
+
+    /**
+     * Returns the home slot of a user number.
+     *
+     * @param number the number of the user
+     * @param mask the length of the table minus one
+     * @return the index of the home slot
+     */
+    private static int slot(int number, int mask) {
+        int hash = number * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,626 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A backend that partitions users and their posts across several BackEnd shards.
+ * Every shard owns the users whose IDs hash to it, together with the posts they create, and only the shard's own
+ * worker thread ever reads or changes them. This class acts as the router: it holds no users or posts itself,
+ * splits every command into steps on the shards that own the users and posts involved, and passes only IDs, numbers
+ * and counts between them. Objects of another shard are kept only as handles and used through their final fields:
+ * the ID and number of a user, and the ID, author and index of a post.
+ * Posts are routed by an index from post ID to shard, and generate_feed / scroll_through_feed gather the feed from
+ * the shards that own the followed users, each shard computing its part on its own worker.
+ */
+public class ShardedBackEnd extends BackEnd {
+
+    /**
+     * The followed users of a viewer that one shard owns, with the viewer's seen watermark of each.
+     */
+    private static class FeedRequest {
+        final ArrayList<User> authors = new ArrayList<User>(); // Followed users owned by the shard
+        int[] watermarks = new int[4];                         // Seen watermark of each author
+
+        /**
+         * Adds a followed user to the request.
+         *
+         * @param author    the followed user
+         * @param watermark the viewer's seen watermark of the user
+         */
+        void add(User author, int watermark) {
+            if (authors.size() == watermarks.length) {
+                watermarks = Arrays.copyOf(watermarks, 2 * watermarks.length);
+            }
+            watermarks[authors.size()] = watermark;
+            authors.add(author);
+        }
+    }
+
+    /**
+     * A post of a gathered feed, with the fields the router needs copied on the shard that owns the post.
+     */
+    private static class FeedItem implements Comparable<FeedItem> {
+        final Post post;         // Handle of the post, only used on its shard
+        final int shard;         // Index of the shard that owns the post
+        final String postID;     // ID of the post
+        final String authorID;   // ID of the author of the post
+        final int watermark;     // Viewer's seen watermark of the author
+        int likes;               // Likes of the post when it was gathered, or after the scroll updates
+        boolean liked;           // True if the viewer clicked the like button while scrolling
+
+        /**
+         * Copies a post for the router. This runs on the worker thread of the shard that owns the post.
+         *
+         * @param post      the post
+         * @param shard     the index of the shard that owns the post
+         * @param watermark the viewer's seen watermark of the author
+         */
+        FeedItem(Post post, int shard, int watermark) {
+            this.post = post;
+            this.shard = shard;
+            this.postID = post.getID();
+            this.authorID = post.getAuthor().getID();
+            this.watermark = watermark;
+            this.likes = post.getLikes();
+        }
+
+        /**
+         * Compares the items like their posts: by likes, then by post ID.
+         *
+         * @param item the item to compare to
+         * @return a negative integer, zero, or a positive integer as this item is less than, equal to, or greater than the other
+         */
+        @Override
+        public int compareTo(FeedItem item) {
+            if (this.likes != item.likes)
+                return this.likes - item.likes;
+
+            return this.postID.compareTo(item.postID);
+        }
+    }
+
+    private final Writer writer;                     // Writer for the errors and messages of the router
+    private final BackEnd[] shards;                  // Shards that hold the users and posts
+    private final ExecutorService[] workers;         // One worker thread per shard
+    private final MyHashMap<String, Integer> postShards; // Index of the shard owning each post, by post ID
+
+    /**
+     * Constructs a sharded backend with the given number of shards.
+     * All shards write to the same writer, so the output order is the order of the commands.
+     * Shard i numbers its users i, i + shardCount and so on, so the numbers in the seen sets are unique across shards.
+     *
+     * @param writer     the Writer object for logging operations
+     * @param shardCount the number of shards, must be at least 1
+     */
+    public ShardedBackEnd(Writer writer, int shardCount) {
+        super(writer, 0, 0);
+        this.writer = writer;
+        shards = new BackEnd[shardCount];
+        workers = new ExecutorService[shardCount];
+        postShards = new MyHashMap<String, Integer>();
+
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new BackEnd(writer, i, shardCount);
+            final int shardIndex = i;
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "shard-" + shardIndex);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Returns the index of the shard that owns the given user.
+     *
+     * @param userID the ID of the user
+     * @return the index of the owning shard
+     */
+    private int shardOf(String userID) {
+        return Math.floorMod(userID.hashCode(), shards.length);
+    }
+
+    /**
+     * Creates a new user on the shard that owns the user ID.
+     *
+     * @param userID the unique ID of the user
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void createUser(String userID) throws IOException {
+        int shard = shardOf(userID);
+        call(shard, () -> {
+            shards[shard].createUser(userID);
+            return null;
+        });
+    }
+
+    /**
+     * Records the follow on the follower's shard, then counts the follower on the followed user's shard.
+     *
+     * @param userID1 the ID of the user who is following
+     * @param userID2 the ID of the user to be followed
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void followUser(String userID1, String userID2) throws IOException {
+        int shard1 = shardOf(userID1);
+        int shard2 = shardOf(userID2);
+        User user1 = call(shard1, () -> shards[shard1].findUser(userID1));
+        User user2 = call(shard2, () -> shards[shard2].findUser(userID2));
+
+        if (user1 == null || user2 == null || user1 == user2 || !call(shard1, () -> user1.follow(user2))) {
+            writer.write("Some error occurred in follow_user.\n");
+            return;
+        }
+
+        call(shard2, () -> {
+            user2.addFollower();
+            return null;
+        });
+        if (getFeedCache() != null) getFeedCache().invalidateViewer(userID1);
+        writer.write(userID1 + " followed " + userID2 + ".\n");
+    }
+
+    /**
+     * Removes the follow on the follower's shard, then uncounts the follower on the followed user's shard.
+     *
+     * @param userID1 the ID of the user who is unfollowing
+     * @param userID2 the ID of the user to be unfollowed
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void unfollowUser(String userID1, String userID2) throws IOException {
+        int shard1 = shardOf(userID1);
+        int shard2 = shardOf(userID2);
+        User user1 = call(shard1, () -> shards[shard1].findUser(userID1));
+        User user2 = call(shard2, () -> shards[shard2].findUser(userID2));
+
+        if (user1 == null || user2 == null || user1 == user2 || !call(shard1, () -> user1.unfollow(user2))) {
+            writer.write("Some error occurred in unfollow_user.\n");
+            return;
+        }
+
+        call(shard2, () -> {
+            user2.removeFollower();
+            return null;
+        });
+        if (getFeedCache() != null) getFeedCache().invalidateViewer(userID1);
+        writer.write(userID1 + " unfollowed " + userID2 + ".\n");
+    }
+
+    /**
+     * Creates a post on the shard that owns its author and records the shard in the post index.
+     *
+     * @param userID  the ID of the user creating the post
+     * @param postID  the unique ID of the post
+     * @param content the content of the post
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void createPost(String userID, String postID, String content) throws IOException {
+        if (postShards.get(postID) != null) {
+            writer.write("Some error occurred in create_post.\n");
+            return;
+        }
+
+        int shard = shardOf(userID);
+        Post post = call(shard, () -> {
+            shards[shard].createPost(userID, postID, content);
+            return shards[shard].findPost(postID);
+        });
+        if (post != null) {
+            postShards.add(post.getID(), shard);
+            if (getFeedCache() != null) getFeedCache().invalidateAuthor(userID);
+        }
+    }
+
+    /**
+     * Reads the viewer's seen watermark of the author on the viewer's shard, then marks the post on its own shard.
+     *
+     * @param userID the ID of the user viewing the post
+     * @param postID the ID of the post being viewed
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void seePost(String userID, String postID) throws IOException {
+        int userShard = shardOf(userID);
+        Integer postShard = postShards.get(postID);
+        User user = call(userShard, () -> shards[userShard].findUser(userID));
+
+        if (postShard == null || user == null) {
+            writer.write("Some error occurred in see_post.\n");
+            return;
+        }
+
+        Post post = call(postShard, () -> shards[postShard].findPost(postID));
+        int watermark = call(userShard, () -> user.getSeenWatermark(post.getAuthor()));
+        call(postShard, () -> {
+            post.markSeen(user, watermark);
+            return null;
+        });
+        if (getFeedCache() != null) getFeedCache().invalidateViewer(userID);
+        writer.write(userID + " saw " + postID + ".\n");
+    }
+
+    /**
+     * Counts the posts on the author's shard, then moves the viewer's watermark on the viewer's shard.
+     *
+     * @param viewerID the ID of the user viewing the posts
+     * @param viewedID the ID of the user whose posts are being viewed
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void seeAllPostsFromUser(String viewerID, String viewedID) throws IOException {
+        int viewerShard = shardOf(viewerID);
+        int viewedShard = shardOf(viewedID);
+        User viewer = call(viewerShard, () -> shards[viewerShard].findUser(viewerID));
+        User viewed = call(viewedShard, () -> shards[viewedShard].findUser(viewedID));
+
+        if (viewer == null || viewed == null) {
+            writer.write("Some error occurred in see_all_posts_from_user.\n");
+            return;
+        }
+
+        int count = call(viewedShard, () -> viewed.getPosts().size());
+        call(viewerShard, () -> {
+            viewer.seeAllPosts(viewed, count);
+            return null;
+        });
+        if (getFeedCache() != null) getFeedCache().invalidateViewer(viewerID);
+        writer.write(viewerID + " saw all posts of " + viewedID + ".\n");
+    }
+
+    /**
+     * Reads the user's seen watermark of the author on the user's shard, then toggles the like on the post's shard.
+     *
+     * @param userID the ID of the user liking or unliking the post
+     * @param postID the ID of the post
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void pressLikeButton(String userID, String postID) throws IOException {
+        int userShard = shardOf(userID);
+        Integer postShard = postShards.get(postID);
+        User user = call(userShard, () -> shards[userShard].findUser(userID));
+
+        if (postShard == null || user == null) {
+            writer.write("Some error occurred in toggle_like.\n");
+            return;
+        }
+
+        Post post = call(postShard, () -> shards[postShard].findPost(postID));
+        int watermark = call(userShard, () -> user.getSeenWatermark(post.getAuthor()));
+        boolean liked = call(postShard, () -> post.toggleLike(user, watermark));
+        if (getFeedCache() != null) {
+            int likes = call(postShard, post::getLikes);
+            getFeedCache().invalidateViewer(userID);
+            getFeedCache().invalidatePost(postID, post.getAuthor().getID(), likes);
+        }
+        if (liked) {
+            writer.write(userID + " liked " + postID + ".\n");
+        } else {
+            writer.write(userID + " unliked " + postID + ".\n");
+        }
+    }
+
+    /**
+     * Generates a feed from the best unseen posts gathered from the shards that own the followed users.
+     *
+     * @param userID the ID of the user requesting the feed
+     * @param count  the number of posts to include in the feed
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void generateFeed(String userID, int count) throws IOException {
+        int userShard = shardOf(userID);
+        User user = call(userShard, () -> shards[userShard].findUser(userID));
+
+        if (user == null) {
+            writer.write("Some error occurred in generate_feed.\n");
+            return;
+        }
+
+        // Answer from the cache if the feed did not change since it was generated.
+        FeedCache feedCache = getFeedCache();
+        if (feedCache != null) {
+            String cached = feedCache.get(userID, count);
+            if (cached != null) {
+                writer.write(cached);
+                return;
+            }
+        }
+
+        FeedRequest[] requests = call(userShard, () -> planFeed(user));
+        MaxPriorityQueue<FeedItem> feed = gatherFeed(user, requests, count);
+        ArrayList<String> postIDs = new ArrayList<String>();
+        int lastLikes = 0;
+
+        StringBuilder output = new StringBuilder();
+        output.append("Feed for ").append(userID).append(":\n");
+        int remaining = count;
+        while (remaining > 0 && !feed.isEmpty()) {
+            FeedItem item = feed.deleteMax();
+            postIDs.add(item.postID);
+            lastLikes = item.likes;
+            output.append("Post ID: ").append(item.postID).append(", Author: ").append(item.authorID).append(", Likes: ").append(item.likes).append("\n");
+            remaining--;
+        }
+
+        if (remaining > 0) {
+            output.append("No more posts available for ").append(userID).append(".\n");
+        }
+
+        String rendered = output.toString();
+        if (feedCache != null) {
+            ArrayList<String> authorIDs = new ArrayList<String>();
+            for (FeedRequest request : requests) {
+                if (request != null) {
+                    for (User author : request.authors) {
+                        authorIDs.add(author.getID());
+                    }
+                }
+            }
+            feedCache.put(user.getID(), count, rendered, authorIDs, postIDs, lastLikes);
+        }
+        writer.write(rendered);
+    }
+
+    /**
+     * Scrolls through a feed gathered from the shards, then applies the seen and like updates
+     * as one batch on each shard that owns scrolled posts.
+     *
+     * @param userID     the ID of the user scrolling the feed
+     * @param number     the number of posts to scroll through
+     * @param likedPosts a bitset whose i-th bit is set if the i-th scrolled post is liked rather than just viewed
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void scrollThroughFeed(String userID, int number, BitSet likedPosts) throws IOException {
+        int userShard = shardOf(userID);
+        User user = call(userShard, () -> shards[userShard].findUser(userID));
+
+        if (user == null) {
+            writer.write("Some error occurred in scroll_through_feed.\n");
+            return;
+        }
+
+        FeedRequest[] requests = call(userShard, () -> planFeed(user));
+        MaxPriorityQueue<FeedItem> feed = gatherFeed(user, requests, number);
+
+        writer.write(userID + " is scrolling through feed:\n");
+        ArrayList<ArrayList<FeedItem>> batches = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            batches.add(new ArrayList<FeedItem>());
+        }
+        ArrayList<FeedItem> likedItems = new ArrayList<FeedItem>();
+        int scrolled = 0;
+        while (number > scrolled && !feed.isEmpty()) {
+            FeedItem item = feed.deleteMax();
+            item.liked = likedPosts.get(scrolled);
+            batches.get(item.shard).add(item);
+
+            if (!item.liked) {
+                writer.write(userID + " saw " + item.postID + " while scrolling.\n");
+            } else {
+                writer.write(userID + " saw " + item.postID + " while scrolling and clicked the like button.\n");
+                likedItems.add(item);
+            }
+
+            scrolled++;
+        }
+
+        // Apply the seen and like updates of the scrolled posts, each shard on its own worker.
+        ArrayList<Future<Object>> updates = new ArrayList<>();
+        for (ArrayList<FeedItem> batch : batches) {
+            if (!batch.isEmpty()) {
+                updates.add(workers[batch.get(0).shard].submit(() -> applyScroll(user, batch)));
+            }
+        }
+        for (Future<Object> update : updates) {
+            await(update);
+        }
+
+        FeedCache feedCache = getFeedCache();
+        if (feedCache != null) {
+            for (FeedItem item : likedItems) {
+                feedCache.invalidatePost(item.postID, item.authorID, item.likes);
+            }
+            if (scrolled > 0) {
+                feedCache.invalidateViewer(userID);
+            }
+        }
+
+        if (number > scrolled) {
+            writer.write("No more posts in feed.\n");
+        }
+    }
+
+    /**
+     * Sorts the posts of a user on the shard that owns the user.
+     *
+     * @param userID the ID of the user whose posts are to be sorted
+     * @throws IOException if an error occurs during writing to the log
+     */
+    @Override
+    public void sortPosts(String userID) throws IOException {
+        int shard = shardOf(userID);
+        call(shard, () -> {
+            shards[shard].sortPosts(userID);
+            return null;
+        });
+    }
+
+    /**
+     * Selects the priority queue implementation of the router and of every shard.
+     *
+     * @param queueType the type of priority queue to use
+     */
+    @Override
+    public void setQueueType(QueueType queueType) {
+        super.setQueueType(queueType);
+        for (BackEnd shard : shards) {
+            shard.setQueueType(queueType);
+        }
+    }
+
+    /**
+     * Groups the followed users of a viewer by the shard that owns them, with the viewer's seen watermarks.
+     * This runs on the worker thread of the viewer's shard.
+     *
+     * @param viewer the user requesting the feed
+     * @return the request for each shard, null for the shards that own no followed user
+     */
+    private FeedRequest[] planFeed(User viewer) {
+        FeedRequest[] requests = new FeedRequest[shards.length];
+        for (User author : viewer.getFollowed().getValues()) {
+            int shard = shardOf(author.getID());
+            if (requests[shard] == null) {
+                requests[shard] = new FeedRequest();
+            }
+            requests[shard].add(author, viewer.getSeenWatermark(author));
+        }
+        return requests;
+    }
+
+    /**
+     * Asks every shard with a request for its best unseen posts and gathers them into a single priority queue.
+     * Each shard only returns its top {@code count} posts, which is enough to find the overall top {@code count}.
+     *
+     * @param viewer   the user requesting the feed
+     * @param requests the request for each shard, null for the shards that own no followed user
+     * @param count    the number of posts the caller is going to take from the queue
+     * @return a priority queue of the candidate posts gathered from the shards
+     * @throws IOException if a shard fails
+     */
+    private MaxPriorityQueue<FeedItem> gatherFeed(User viewer, FeedRequest[] requests, int count) throws IOException {
+
+        // Scatter the request to the shards.
+        ArrayList<Future<ArrayList<FeedItem>>> replies = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            FeedRequest request = requests[i];
+            int shard = i;
+            if (request != null) {
+                replies.add(workers[i].submit(() -> topUnseenPosts(viewer, request, count, shard)));
+            }
+        }
+
+        // Gather the replies into a single priority queue.
+        MaxPriorityQueue<FeedItem> feed = getQueueType().create();
+        for (Future<ArrayList<FeedItem>> reply : replies) {
+            for (FeedItem item : await(reply)) {
+                feed.insert(item);
+            }
+        }
+        return feed;
+    }
+
+    /**
+     * Finds the best unseen posts of the given authors. This runs on the worker thread of a shard.
+     *
+     * @param viewer  the user requesting the feed
+     * @param request the followed users owned by the shard, with the viewer's seen watermarks
+     * @param count   the maximum number of posts to return
+     * @param shard   the index of the shard
+     * @return up to {@code count} unseen posts in descending order of likes
+     */
+    private ArrayList<FeedItem> topUnseenPosts(User viewer, FeedRequest request, int count, int shard) {
+        UnseenPostFeed feed = new UnseenPostFeed(viewer, request.authors, request.watermarks, getQueueType());
+
+        ArrayList<FeedItem> top = new ArrayList<>();
+        while (count > top.size() && !feed.isEmpty()) {
+            Post post = feed.deleteMax();
+            top.add(new FeedItem(post, shard, feed.getLastWatermark()));
+        }
+        return top;
+    }
+
+    /**
+     * Applies the seen and like updates of the scrolled posts of one shard. This runs on the worker thread of the shard.
+     *
+     * @param viewer the user scrolling the feed
+     * @param batch  the scrolled posts owned by the shard
+     * @return null
+     */
+    private static Object applyScroll(User viewer, ArrayList<FeedItem> batch) {
+        for (FeedItem item : batch) {
+            if (!item.liked) {
+                item.post.markSeen(viewer, item.watermark);
+            } else {
+                item.post.toggleLike(viewer, item.watermark);
+                item.likes = item.post.getLikes();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a step of a command on the worker thread of a shard and waits for its result.
+     *
+     * @param shard the index of the shard
+     * @param task  the step to run
+     * @param <T>   the type of the result
+     * @return the result of the step
+     * @throws IOException if the step fails to write to the log
+     */
+    private <T> T call(int shard, Callable<T> task) throws IOException {
+        return await(workers[shard].submit(task));
+    }
+
+    /**
+     * Waits for the reply of a shard.
+     *
+     * @param reply the pending reply
+     * @param <T>   the type of the reply
+     * @return the reply of the shard
+     * @throws IOException if the shard failed to write to the log
+     */
+    private static <T> T await(Future<T> reply) throws IOException {
+        try {
+            return reply.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("A shard failed", e.getCause());
+        }
+    }
+
+    /**
+     * Returns the shards, which hold the users and posts.
+     *
+     * @return the shards of this backend
+     */
+    @Override
+    protected BackEnd[] getPartitions() {
+        return shards;
+    }
+
+    /**
+     * Returns the router's map from post IDs to the shards that own them.
+     *
+     * @return the shard index of each post, by post ID
+     */
+    MyHashMap<String, Integer> getPostShards() {
+        return postShards;
+    }
+
+    /**
+     * Stops the worker threads of the shards.
+     */
+    public void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
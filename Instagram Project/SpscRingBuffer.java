@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded lock-free ring buffer for exactly one producer thread and one consumer thread.
+ * The producer only writes the tail and the consumer only writes the head,
+ * so the two sides hand elements over through ordered writes without any locks.
+ *
+ * @param <T> the type of elements passed through the buffer
+ */
+public class SpscRingBuffer<T> {
+
+    private final Object[] buffer;     // Slots of the ring, the length is a power of two
+    private final int mask;            // buffer.length - 1, used instead of a modulo
+    private final AtomicLong head;     // Index of the next element to take, written by the consumer
+    private final AtomicLong tail;     // Index of the next free slot, written by the producer
+    private long cachedHead;           // Producer's last seen head, avoids reading the shared counter
+    private long cachedTail;           // Consumer's last seen tail, avoids reading the shared counter
+
+    /**
+     * Constructs an empty ring buffer.
+     *
+     * @param capacity the minimum number of slots, rounded up to a power of two
+     */
+    public SpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        buffer = new Object[size];
+        mask = size - 1;
+        head = new AtomicLong(0);
+        tail = new AtomicLong(0);
+    }
+
+    /**
+     * Adds an element if there is a free slot. Must only be called by the producer thread.
+     *
+     * @param element the element to add, must not be null
+     * @return true if the element was added, false if the buffer is full
+     */
+    public boolean offer(T element) {
+        long currentTail = tail.get();
+        if (currentTail - cachedHead == buffer.length) {
+            cachedHead = head.get();
+            if (currentTail - cachedHead == buffer.length) {
+                return false;
+            }
+        }
+
+        buffer[(int) currentTail & mask] = element;
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element if there is one. Must only be called by the consumer thread.
+     *
+     * @return the oldest element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long currentHead = head.get();
+        if (currentHead == cachedTail) {
+            cachedTail = tail.get();
+            if (currentHead == cachedTail) {
+                return null;
+            }
+        }
+
+        int index = (int) currentHead & mask;
+        T element = (T) buffer[index];
+        buffer[index] = null;
+        head.lazySet(currentHead + 1);
+        return element;
+    }
+
+    /**
+     * Adds an element, waiting while the buffer is full. Must only be called by the producer thread.
+     *
+     * @param element the element to add, must not be null
+     */
+    public void put(T element) {
+        int idle = 0;
+        while (!offer(element)) {
+            idle = backOff(idle);
+        }
+    }
+
+    /**
+     * Removes the oldest element, waiting while the buffer is empty. Must only be called by the consumer thread.
+     *
+     * @return the oldest element
+     */
+    public T take() {
+        int idle = 0;
+        T element;
+        while ((element = poll()) == null) {
+            idle = backOff(idle);
+        }
+        return element;
+    }
+
+    /**
+     * Waits a little before retrying: spins first, then yields, then parks briefly.
+     *
+     * @param idle the number of failed attempts so far
+     * @return the updated number of failed attempts
+     */
+    private static int backOff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+        return idle + 1;
+    }
+}
@@ -0,0 +1,132 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded generator of command traces for Main and TraceHarness.
+ * The same options always give the same trace, so a trace and its reference output can be rebuilt from the command
+ * line that made them. The commands mix user creation, follows, posts, likes, views, feeds and scrolls; about one
+ * post in twenty reuses an existing post ID and some commands name unknown users or posts, so the error paths
+ * are covered as well.
+ *
+ * Usage: java TraceGenerator output.txt [--commands=N] [--users=N] [--contents=N] [--seed=N]
+ * The options and their defaults:
+ *   --commands=3000 number of commands
+ *   --users=30      number of distinct user IDs
+ *   --contents=6    number of distinct post contents
+ *   --seed=1        seed of the random stream
+ *
+ * The traces in the traces directory were made with
+ *   java TraceGenerator traces/mixed-small.txt --seed=1
+ *   java TraceGenerator traces/mixed-wide.txt --seed=2 --users=200 --commands=6000
+ *   java TraceGenerator traces/feed-heavy.txt --seed=3 --users=10
+ * and their references with
+ *   java TraceHarness traces results.csv --record
+ */
+public class TraceGenerator {
+
+    public static void main(String[] args) throws IOException {
+        int commands = (int) option(args, "commands", 3000);
+        int users = (int) option(args, "users", 30);
+        int contents = (int) option(args, "contents", 6);
+        long seed = option(args, "seed", 1);
+
+        try (Writer writer = new FileWriter(args[0])) {
+            generate(writer, new SplittableRandom(seed), commands, users, contents);
+        }
+    }
+
+    /**
+     * Writes a trace of random commands.
+     *
+     * @param writer   the writer to write the trace to
+     * @param random   the source of the commands
+     * @param commands the number of commands
+     * @param users    the number of distinct user IDs
+     * @param contents the number of distinct post contents
+     * @throws IOException if the trace cannot be written
+     */
+    public static void generate(Writer writer, SplittableRandom random, int commands, int users, int contents) throws IOException {
+        ArrayList<String> posts = new ArrayList<String>(); // IDs of the posts created so far, reused IDs included
+        int postCount = 0;
+
+        for (int i = 0; i < commands; i++) {
+            double op = random.nextDouble();
+            String line;
+            if (op < 0.08) {
+                line = "create_user " + user(random, users);
+            } else if (op < 0.25) {
+                line = "follow_user " + user(random, users) + " " + user(random, users);
+            } else if (op < 0.30) {
+                line = "unfollow_user " + user(random, users) + " " + user(random, users);
+            } else if (op < 0.50) {
+                postCount++;
+                String postID = random.nextDouble() < 0.95 || posts.isEmpty() ? "post" + postCount : post(random, posts);
+                posts.add(postID);
+                line = "create_post " + user(random, users) + " " + postID + " content" + random.nextInt(contents);
+            } else if (op < 0.58) {
+                line = "see_post " + user(random, users) + " " + post(random, posts);
+            } else if (op < 0.62) {
+                line = "see_all_posts_from_user " + user(random, users) + " " + user(random, users);
+            } else if (op < 0.75) {
+                line = "toggle_like " + user(random, users) + " " + post(random, posts);
+            } else if (op < 0.85) {
+                line = "generate_feed " + user(random, users) + " " + random.nextInt(9);
+            } else if (op < 0.95) {
+                int count = random.nextInt(9);
+                StringBuilder scroll = new StringBuilder("scroll_through_feed ").append(user(random, users)).append(' ').append(count);
+                for (int j = 0; j < count; j++) {
+                    scroll.append(' ').append(random.nextInt(2));
+                }
+                line = scroll.toString();
+            } else {
+                line = "sort_posts " + user(random, users);
+            }
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Picks a random user ID.
+     *
+     * @param random the source of the choice
+     * @param users  the number of distinct user IDs
+     * @return the user ID
+     */
+    private static String user(SplittableRandom random, int users) {
+        return "user" + random.nextInt(users);
+    }
+
+    /**
+     * Picks the ID of a random created post, or an unknown post ID if none was created yet.
+     *
+     * @param random the source of the choice
+     * @param posts  the IDs of the posts created so far
+     * @return the post ID
+     */
+    private static String post(SplittableRandom random, ArrayList<String> posts) {
+        return posts.isEmpty() ? "post0" : posts.get(random.nextInt(posts.size()));
+    }
+
+    /**
+     * Reads a numeric option of the form --name=value.
+     *
+     * @param args the command line arguments
+     * @param name the name of the option
+     * @param defaultValue the value if the option is missing
+     * @return the value of the option
+     */
+    private static long option(String[] args, String name, long defaultValue) {
+        String prefix = "--" + name + "=";
+        long value = defaultValue;
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                value = Long.parseLong(arg.substring(prefix.length()));
+            }
+        }
+        return value;
+    }
+}
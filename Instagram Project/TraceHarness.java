@@ -0,0 +1,224 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Replays recorded command traces through the backend, checks the output byte for byte against
+ * a stored reference and records the wall time, allocation and peak heap of every run.
+ * The traces run through the same entry point as Main, so every backend option of Main, --pipeline included,
+ * applies to the measured runs.
+ *
+ * Every trace "name.txt" in the trace directory is paired with the reference "name.expected".
+ * Usage: java TraceHarness [traceDir [results.csv]] [--record] [--runs=N] [backend options of Main]
+ * The trace directory defaults to "traces", which holds traces made by {@link TraceGenerator} and their references,
+ * and the results file defaults to "results.csv".
+ * With --record, the references are (re)written from the current output instead of being checked.
+ * The results file gets one CSV row per run and is appended to, so results of several builds can be compared.
+ */
+public class TraceHarness {
+
+    public static void main(String[] args) throws IOException {
+        args = withDefaultPaths(args);
+        File traceDir = new File(args[0]);
+        File resultsFile = new File(args[1]);
+
+        boolean record = false;
+        int runs = 3;
+        StringBuilder options = new StringBuilder();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--record")) {
+                record = true;
+            } else if (args[i].startsWith("--runs=")) {
+                runs = Integer.parseInt(args[i].substring("--runs=".length()));
+            } else {
+                options.append(options.length() == 0 ? "" : " ").append(args[i]);
+            }
+        }
+
+        File[] traces = traceDir.listFiles((dir, name) -> name.endsWith(".txt"));
+        if (traces == null || traces.length == 0) {
+            System.err.println("No traces found in " + traceDir);
+            System.exit(2);
+        }
+        Arrays.sort(traces);
+
+        boolean newFile = !resultsFile.exists();
+        boolean allPassed = true;
+        try (FileWriter results = new FileWriter(resultsFile, true)) {
+            if (newFile) {
+                results.write("trace,options,run,status,wallMillis,allocatedBytes,peakHeapBytes,outputBytes\n");
+            }
+
+            for (File trace : traces) {
+                String name = trace.getName().substring(0, trace.getName().length() - ".txt".length());
+                File reference = new File(traceDir, name + ".expected");
+
+                for (int run = 1; run <= runs; run++) {
+                    RunResult result = replay(trace, args);
+
+                    String status;
+                    if (record) {
+                        Files.write(reference.toPath(), result.output);
+                        status = "recorded";
+                    } else if (!reference.exists()) {
+                        status = "missing-reference";
+                        allPassed = false;
+                    } else if (Arrays.equals(result.output, Files.readAllBytes(reference.toPath()))) {
+                        status = "pass";
+                    } else {
+                        status = "FAIL";
+                        allPassed = false;
+                    }
+
+                    results.write(String.format("%s,%s,%d,%s,%.3f,%d,%d,%d\n", name, options, run, status,
+                            result.wallNanos / 1e6, result.allocatedBytes, result.peakHeapBytes, result.output.length));
+                    System.out.printf("%-24s run %d: %-17s %10.3f ms %14d B allocated %14d B peak heap%n",
+                            name, run, status, result.wallNanos / 1e6, result.allocatedBytes, result.peakHeapBytes);
+
+                    // Recording once is enough.
+                    if (record) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fills in the default trace directory and results file when they are left out of the command line.
+     *
+     * @param args the command line arguments
+     * @return the arguments starting with the trace directory and the results file
+     */
+    private static String[] withDefaultPaths(String[] args) {
+        int given = 0;
+        while (given < 2 && given < args.length && !args[given].startsWith("--")) {
+            given++;
+        }
+
+        String[] defaults = {"traces", "results.csv"};
+        String[] full = new String[args.length + 2 - given];
+        System.arraycopy(args, 0, full, 0, given);
+        System.arraycopy(defaults, given, full, given, 2 - given);
+        System.arraycopy(args, given, full, 2, args.length - given);
+        return full;
+    }
+
+    /**
+     * The measurements of a single replay.
+     */
+    private static class RunResult {
+        byte[] output;          // Output of the backend
+        long wallNanos;         // Elapsed wall clock time
+        long allocatedBytes;    // Bytes allocated by the replaying thread
+        long peakHeapBytes;     // Peak of the total used heap, sampled while the trace runs
+    }
+
+    /**
+     * Replays a trace on a fresh backend and measures it.
+     * Allocation is measured on the replaying thread only, so shard and pipeline threads are not included.
+     * The used heap is sampled every millisecond by a separate thread, so short peaks between two samples are missed.
+     *
+     * @param trace the trace file
+     * @param args  the command line arguments, whose backend options configure the backend
+     * @return the output and measurements of the run
+     * @throws IOException if the trace cannot be read
+     */
+    private static RunResult replay(File trace, String[] args) throws IOException {
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        HeapSampler sampler = new HeapSampler(memory);
+        Thread samplerThread = new Thread(sampler, "heap-sampler");
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+        RunResult result = new RunResult();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            BackEnd backEnd = Main.run(trace.getPath(), writer, args, 2);
+            if (backEnd instanceof ShardedBackEnd) {
+                ((ShardedBackEnd) backEnd).shutdown();
+            }
+        }
+
+        result.wallNanos = System.nanoTime() - start;
+        result.allocatedBytes = allocatedBytes() - allocatedBefore;
+        sampler.stop();
+        try {
+            samplerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        result.peakHeapBytes = Math.max(sampler.peak, memory.getHeapMemoryUsage().getUsed());
+        result.output = bytes.toByteArray();
+        return result;
+    }
+
+    /**
+     * Samples the total used heap until it is stopped and keeps the largest sample.
+     */
+    private static class HeapSampler implements Runnable {
+        private final MemoryMXBean memory;  // Source of the heap usage
+        private volatile boolean running = true;  // Cleared to stop the sampling
+        private volatile long peak;         // Largest used heap seen so far
+
+        /**
+         * Constructs a sampler of the given memory bean.
+         *
+         * @param memory the memory bean to read the heap usage from
+         */
+        HeapSampler(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        /**
+         * Samples the used heap every millisecond until stopped.
+         */
+        @Override
+        public void run() {
+            while (running) {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Asks the sampler to stop after its current sample.
+         */
+        void stop() {
+            running = false;
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return the allocated bytes, or -1 if the JVM does not support measuring it
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
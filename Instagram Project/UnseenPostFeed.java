@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+
+/**
+ * The unseen posts of a viewer's followed users, given out lazily in descending order of likes.
+ * The feed is a k-way merge: a heap holds one cursor per author with unseen posts, ordered by the author's best
+ * unseen post. Building the feed only scans the posts to find each author's best one, and the remaining posts of an
+ * author go into a small heap of their own the first time the author's best post is taken. Authors whose posts are
+ * never reached cost no heap insertions, so taking a few posts does not pay for ordering all of them.
+ */
+public class UnseenPostFeed implements MaxPriorityQueue<Post> {
+
+    /**
+     * The untaken unseen posts of one author.
+     */
+    private static class AuthorCursor implements Comparable<AuthorCursor> {
+        final User author;              // Author of the posts
+        final int first;                // Index of the first post that was not seen all at once
+        final int count;                // Number of unseen posts of the author when the feed was built
+        Post best;                      // Best untaken post of the author
+        MaxPriorityQueue<Post> rest;    // Other untaken posts of the author, null until the best is first taken
+
+        /**
+         * Constructs a cursor at the best unseen post of an author.
+         *
+         * @param author the author of the posts
+         * @param first  the index of the first post that was not seen all at once
+         * @param count  the number of unseen posts of the author
+         * @param best   the best unseen post of the author
+         */
+        AuthorCursor(User author, int first, int count, Post best) {
+            this.author = author;
+            this.first = first;
+            this.count = count;
+            this.best = best;
+        }
+
+        /**
+         * Compares the cursors by their best posts.
+         *
+         * @param cursor the cursor to compare to
+         * @return the comparison of the best posts of the cursors
+         */
+        @Override
+        public int compareTo(AuthorCursor cursor) {
+            return best.compareTo(cursor.best);
+        }
+    }
+
+    private final User viewer;                          // User whose feed this is
+    private final QueueType queueType;                  // Priority queue used for the cursors and the authors
+    private final MaxPriorityQueue<AuthorCursor> cursors; // Authors with untaken posts, by their best post
+    private int size;                                   // Number of untaken posts
+    private int lastWatermark;                          // Seen watermark of the author of the post taken last
+
+    /**
+     * Constructs the feed of a viewer from the posts of the given authors.
+     * The seen watermarks are passed in rather than read from the viewer, so a shard can build the feed
+     * of a viewer it does not hold.
+     *
+     * @param viewer     the user requesting the feed
+     * @param authors    the users whose unseen posts make up the feed
+     * @param watermarks the viewer's seen watermark of each author, in the order of the authors
+     * @param queueType  the priority queue used for the cursors and the posts of each author
+     */
+    public UnseenPostFeed(User viewer, ArrayList<User> authors, int[] watermarks, QueueType queueType) {
+        this.viewer = viewer;
+        this.queueType = queueType;
+        this.cursors = queueType.create(authors.size());
+
+        for (int a = 0; a < authors.size(); a++) {
+            User author = authors.get(a);
+            ArrayList<Post> posts = author.getPosts();
+            int first = watermarks[a];
+
+            // The posts before the watermark were seen all at once, so skip them without any lookups.
+            Post best = null;
+            int count = 0;
+            for (int i = first; i < posts.size(); i++) {
+                Post post = posts.get(i);
+                if (!post.isMarkedSeen(viewer)) {
+                    count++;
+                    if (best == null || post.compareTo(best) > 0) {
+                        best = post;
+                    }
+                }
+            }
+
+            if (best != null) {
+                cursors.insert(new AuthorCursor(author, first, count, best));
+                size += count;
+            }
+        }
+    }
+
+    /**
+     * Adds a single post to the feed.
+     *
+     * @param x the post to add
+     */
+    @Override
+    public void insert(Post x) {
+        AuthorCursor cursor = new AuthorCursor(x.getAuthor(), 0, 1, x);
+        cursor.rest = queueType.create(1);
+        cursors.insert(cursor);
+        size++;
+    }
+
+    /**
+     * Removes and returns the post with the most likes, moving its author's cursor to the next best post.
+     *
+     * @return the best untaken post
+     */
+    @Override
+    public Post deleteMax() {
+        AuthorCursor cursor = cursors.deleteMax();
+        Post max = cursor.best;
+        lastWatermark = cursor.first;
+        size--;
+
+        if (cursor.rest == null) {
+            // The author's other unseen posts are known in number, so the heap is sized to hold exactly them.
+            cursor.rest = queueType.create(cursor.count - 1);
+            ArrayList<Post> posts = cursor.author.getPosts();
+            for (int i = cursor.first; i < posts.size(); i++) {
+                Post post = posts.get(i);
+                if (post != max && !post.isMarkedSeen(viewer)) {
+                    cursor.rest.insert(post);
+                }
+            }
+        }
+
+        if (!cursor.rest.isEmpty()) {
+            cursor.best = cursor.rest.deleteMax();
+            cursors.insert(cursor);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the viewer's seen watermark of the author of the post that deleteMax returned last.
+     *
+     * @return the watermark of the author of the last taken post
+     */
+    public int getLastWatermark() {
+        return lastWatermark;
+    }
+
+    /**
+     * Returns the post with the most likes without removing it.
+     *
+     * @return the best untaken post
+     */
+    @Override
+    public Post getMax() {
+        return cursors.getMax().best;
+    }
+
+    /**
+     * Returns the number of untaken posts.
+     *
+     * @return the size of the feed
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if every post was taken.
+     *
+     * @return true if the feed is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
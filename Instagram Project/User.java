@@ -7,24 +7,29 @@ import java.util.ArrayList;
 public class User implements Comparable<User> {
 
     private final String ID;                       // Unique identifier for the user
+    private final int number;                      // Unique sequential number of the user, used by compact sets
     private int followerCount;                     // Number of followers the user has
     private MyHashMap<String, User> followed;      // Users followed by this user
     private ArrayList<Post> posts;                 // Posts created by this user
+    private MyHashMap<String, Integer> seenWatermarks; // Number of posts of each author seen at once, null if none
 
     /**
      * Constructs a new user with the specified unique ID.
      *
-     * @param ID the unique identifier for the user
+     * @param ID     the unique identifier for the user
+     * @param number the unique number of the user, given out by the backend that creates it
      */
-    public User(String ID) {
+    public User(String ID, int number) {
         this.ID = ID;
+        this.number = number;
         followerCount = 0;
         followed = new MyHashMap<String, User>();
         posts = new ArrayList<Post>();
     }
 
     /**
-     * Follows another user.
+     * Follows another user. The follower count of the other user is left to the caller,
+     * since that user may belong to another shard.
      *
      * @param user the user to follow
      * @return true if the user was successfully followed, false if already following
@@ -32,7 +37,6 @@ public class User implements Comparable<User> {
     public boolean follow(User user) {
         if (!isFollowing(user)) {
             followed.add(user.getID(), user);
-            user.addFollower();
             return true;
         }
 
@@ -40,7 +44,8 @@ public class User implements Comparable<User> {
     }
 
     /**
-     * Unfollows another user.
+     * Unfollows another user. The follower count of the other user is left to the caller,
+     * since that user may belong to another shard.
      *
      * @param user the user to unfollow
      * @return true if the user was successfully unfollowed, false if not currently following
@@ -48,7 +53,6 @@ public class User implements Comparable<User> {
     public boolean unfollow(User user) {
         if (isFollowing(user)) {
             followed.remove(user.getID());
-            user.removeFollower();
             return true;
         }
 
@@ -97,6 +101,45 @@ public class User implements Comparable<User> {
         return !posts.isEmpty();
     }
 
+    /**
+     * Marks every current post of an author as seen by this user.
+     * Since posts are only appended, remembering the number of posts is enough.
+     *
+     * @param author the user whose posts are seen
+     */
+    public void seeAllPosts(User author) {
+        seeAllPosts(author, author.getPosts().size());
+    }
+
+    /**
+     * Marks the first posts of an author as seen by this user, given the number of posts the author has.
+     *
+     * @param author the user whose posts are seen
+     * @param count  the number of posts of the author
+     */
+    public void seeAllPosts(User author, int count) {
+        if (count > getSeenWatermark(author)) {
+            if (seenWatermarks == null) {
+                seenWatermarks = new MyHashMap<String, Integer>();
+            }
+            seenWatermarks.add(author.getID(), count);
+        }
+    }
+
+    /**
+     * Returns the number of leading posts of an author that this user saw all at once.
+     *
+     * @param author the author of the posts
+     * @return the number of the author's first posts that are seen, 0 if none
+     */
+    public int getSeenWatermark(User author) {
+        if (seenWatermarks == null) {
+            return 0;
+        }
+        Integer count = seenWatermarks.get(author.getID());
+        return count == null ? 0 : count;
+    }
+
     /**
      * Returns the unique identifier of this user.
      *
@@ -106,6 +149,15 @@ public class User implements Comparable<User> {
         return ID;
     }
 
+    /**
+     * Returns the unique sequential number of this user.
+     *
+     * @return the number of the user
+     */
+    public int getNumber() {
+        return number;
+    }
+
     /**
      * Returns the number of followers this user has.
      *
@@ -124,6 +176,15 @@ public class User implements Comparable<User> {
         return followed;
     }
 
+    /**
+     * Returns the watermarks of the authors whose posts this user saw all at once.
+     *
+     * @return the map of seen watermarks, or null if there are none
+     */
+    MyHashMap<String, Integer> getSeenWatermarks() {
+        return seenWatermarks;
+    }
+
     /**
      * Returns a list of posts created by this user.
      *
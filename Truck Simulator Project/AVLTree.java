@@ -1,133 +1,227 @@
+import java.util.List;
+
 /**
  * A class representing an AVL tree with nodes containing parking lot data.
+ * Every node keeps aggregates of its subtree: the total truck count and the properties that hold for at least one of its parking lots.
+ * Searches for a parking lot with a property skip the subtrees that do not have it.
  */
-public class AVLTree {
+public class AVLTree implements LotIndex {
 
     private Node root; // Root node of the AVL tree
-    public Node[] hashTable; // Hash table containing the nodes of the AVL tree
+    private CapacityIndex index; // Index from capacity constraints to the nodes of the AVL tree
 
     /**
-     * Constructor initializes the AVL tree with a null root and a hash table.
+     * Constructor initializes the AVL tree with a null root and an empty capacity index.
      */
     public AVLTree() {
         root = null;
-        hashTable = new Node[500001]; // Bad practice but sufficient for the project
+        index = new CapacityIndex();
     }
 
     /**
-     * Inserts a new parking lot into the AVL tree and hash table.
+     * Checks whether the tree contains a parking lot with the given capacity constraint.
      *
-     * @param pl the ParkingLot object to insert
+     * @param capacityConstraint the capacity constraint to look up
+     * @return true if the parking lot is in the tree, false otherwise
      */
-    public void insert(ParkingLot pl){
-        root = insertNode(root, null, pl);
+    @Override
+    public boolean contains(int capacityConstraint){
+        return index.contains(capacityConstraint);
     }
 
     /**
-     * Recursive helper method to insert a parking lot node into the AVL tree and hash table.
+     * Inserts a new parking lot into the AVL tree and capacity index.
+     * The tree is descended once to find the place of the node, then rebalanced upwards along the parent pointers.
      *
-     * @param node the current node in the tree
-     * @param parent the parent node of the current node
      * @param pl the ParkingLot object to insert
-     * @return the balanced node after insertion
      */
-    private Node insertNode(Node node, Node parent, ParkingLot pl){
+    @Override
+    public void insert(ParkingLot pl){
 
-        // Add the parking lot to the tree.
-        if (node == null){
-            Node newNode = new Node(pl, parent);
-            hashTable[pl.getCapacityConstraint()] = newNode;
-            return newNode;
+        // Find where to insert the node.
+        Node parent = null;
+        Node current = root;
+        while (current != null){
+            parent = current;
+            if (pl.getCapacityConstraint() < current.pl.getCapacityConstraint()){
+                current = current.left;
+            }
+            else if (pl.getCapacityConstraint() > current.pl.getCapacityConstraint()){
+                current = current.right;
+            }
+            // Don't take an action if a parking lot with the same capacity constraint already exists.
+            else{
+                return;
+            }
         }
 
-        // Find where to insert the node.
-        if (pl.getCapacityConstraint() < node.pl.getCapacityConstraint()){
-            node.left = insertNode(node.left, node, pl);
+        // Add the parking lot to the tree.
+        Node newNode = new Node(pl, parent);
+        updateAggregates(newNode);
+        index.put(pl.getCapacityConstraint(), newNode);
+
+        if (parent == null){
+            root = newNode;
+            return;
         }
-        else if (pl.getCapacityConstraint() > node.pl.getCapacityConstraint()){
-            node.right = insertNode(node.right, node, pl);
+        if (pl.getCapacityConstraint() < parent.pl.getCapacityConstraint()){
+            parent.left = newNode;
         }
-        // Don't take an action if a parking lot with the same capacity constraint already exists.
         else{
-            return node;
+            parent.right = newNode;
         }
 
-        // Update the height of the node, re-balance it, then return it.
-        updateHeight(node);
-        return balanceInsertion(node, pl);
+        retrace(parent);
     }
 
     /**
-     * Deletes a parking lot node from the AVL tree and hash table based on its capacity constraint.
+     * Builds a perfectly balanced tree from sorted parking lots, taking the middle one as the root of every subtree.
      *
-     * @param capacityConstraint the capacity constraint of the parking lot to delete
+     * @param sorted the parking lots in increasing order of capacity constraint, without duplicates
+     * @throws IllegalStateException if the tree is not empty
      */
-    public void delete(int capacityConstraint){
-        root = deleteNode(root, capacityConstraint);
-        hashTable[capacityConstraint] = null;
+    @Override
+    public void build(List<ParkingLot> sorted){
+        if (root != null){
+            throw new IllegalStateException("Only an empty tree can be built");
+        }
+        root = build(sorted, 0, sorted.size() - 1, null);
     }
 
     /**
-     * Recursive helper method to delete a parking lot node from the AVL tree and hash table.
+     * Recursive helper method to build a balanced subtree from a range of sorted parking lots.
      *
-     * @param node the current node in the tree
-     * @param capacityConstraint the capacity constraint of the parking lot to delete
-     * @return the balanced node after deletion
+     * @param sorted the sorted parking lots
+     * @param from the index of the first parking lot of the subtree
+     * @param to the index of the last parking lot of the subtree
+     * @param parent the parent node of the subtree
+     * @return the root of the subtree, or null if the range is empty
      */
-    private Node deleteNode(Node node, int capacityConstraint) {
+    private Node build(List<ParkingLot> sorted, int from, int to, Node parent){
+        if (from > to){
+            return null;
+        }
 
-        // Base case for recursion
-        if (node == null)
-            return node;
+        int middle = (from + to) >>> 1;
+        Node node = new Node(sorted.get(middle), parent);
+        index.put(node.pl.getCapacityConstraint(), node);
+        node.left = build(sorted, from, middle - 1, node);
+        node.right = build(sorted, middle + 1, to, node);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Gets the number of parking lots in the tree.
+     *
+     * @return the size of the tree
+     */
+    @Override
+    public int size(){
+        return index.size();
+    }
 
-        // Find the node to delete and assign parents if necessary.
-        if (capacityConstraint < node.pl.getCapacityConstraint()){
-            node.left = deleteNode(node.left, capacityConstraint);
-            if (node.left != null) node.left.parent = node;
+    /**
+     * Deletes a parking lot node from the AVL tree and capacity index based on its capacity constraint.
+     * The node is found through the capacity index, unlinked, then the tree is rebalanced upwards along the parent pointers.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot to delete
+     */
+    @Override
+    public void delete(int capacityConstraint){
+
+        Node node = index.get(capacityConstraint);
+        if (node == null){
+            return;
         }
-        else if (capacityConstraint > node.pl.getCapacityConstraint()){
-            node.right = deleteNode(node.right, capacityConstraint);
-            if (node.right != null) node.right.parent = node;
+        index.remove(capacityConstraint);
+
+        // If the node has two children, copy the parking lot of the nextGreater node to it and unlink the nextGreater node instead.
+        Node copiedTo = null;
+        if (node.left != null && node.right != null){
+            Node nextGreater = successor(node);
+            node.pl = nextGreater.pl;
+            index.put(node.pl.getCapacityConstraint(), node); // The parking lot now lives in this node.
+            copiedTo = node;
+            node = nextGreater;
         }
-        // At this point, "node" is the node to be deleted.
-        else {
-
-            // If node has no children, just delete it.
-            if (node.left == null && node.right == null) {
-                node = null;
-            }
 
-            // If node has only one child, replace the node with its child.
-            else if (node.left == null) {
-                node.right.parent = node.parent;
-                node = node.right;
-            } else if (node.right == null) {
-                node.left.parent = node.parent;
-                node = node.left;
-            }
+        // At this point, the node has at most one child, which replaces it.
+        Node child = node.left != null ? node.left : node.right;
+        Node parent = node.parent;
+        if (child != null){
+            child.parent = parent;
+        }
+        replaceChild(parent, node, child);
 
-            // If the node has two children
-            else {
+        retrace(parent);
 
-                // Find the nextGreater node and copy its parking lot to this node.
-                Node nextGreater = findNextGreater(node);
-                node.pl = nextGreater.pl;
+        // The retrace may stop below the node that got a new parking lot, so its aggregates are refreshed separately.
+        if (copiedTo != null){
+            propagate(copiedTo);
+        }
+    }
 
-                // Delete the nextGreater node recursively.
-                node.right = deleteNode(node.right, nextGreater.pl.getCapacityConstraint());
-                if (node.right != null) node.right.parent = node;
+    /**
+     * Walks from a node to the root, updating heights and aggregates and rotating the unbalanced nodes.
+     * The walk stops early once a subtree keeps both its height and its aggregates, since nothing above it changes then.
+     *
+     * @param node the lowest node whose subtree changed
+     */
+    private void retrace(Node node){
+        while (node != null){
+            int oldHeight = node.height;
+            long oldTruckSum = node.truckSum;
+            int oldProperties = node.properties;
+            Node parent = node.parent;
+
+            update(node);
+            Node top = balance(node);
+            if (top != node){
+                replaceChild(parent, node, top);
             }
 
+            if (top.height == oldHeight && top.truckSum == oldTruckSum && top.properties == oldProperties){
+                return;
+            }
+            node = parent;
         }
+    }
 
-        // If the tree had only one node and that node is deleted, return.
-        if (node == null){
-            return node;
+    /**
+     * Walks from a node to the root, updating the aggregates until a node keeps its aggregates.
+     *
+     * @param node the lowest node whose aggregates changed
+     */
+    private void propagate(Node node){
+        while (node != null){
+            long oldTruckSum = node.truckSum;
+            int oldProperties = node.properties;
+            updateAggregates(node);
+            if (node.truckSum == oldTruckSum && node.properties == oldProperties){
+                return;
+            }
+            node = node.parent;
         }
+    }
 
-        // Update the height of the node, re-balance it, then return it.
-        updateHeight(node);
-        return balanceDeletion(node);
+    /**
+     * Replaces a child of a node, or the root if the node is null.
+     *
+     * @param parent the parent whose child is replaced, or null for the root
+     * @param oldChild the child to replace
+     * @param newChild the new child, may be null
+     */
+    private void replaceChild(Node parent, Node oldChild, Node newChild){
+        if (parent == null){
+            root = newChild;
+        }
+        else if (parent.left == oldChild){
+            parent.left = newChild;
+        }
+        else{
+            parent.right = newChild;
+        }
     }
 
     /**
@@ -136,7 +230,7 @@ public class AVLTree {
      * @param node the node whose next greater node is to be found
      * @return the next greater node in the tree
      */
-    public Node findNextGreater(Node node){
+    private Node successor(Node node){
 
         // Case 1: Node has a right subtree.
         if (node.right != null) {
@@ -161,91 +255,136 @@ public class AVLTree {
     }
 
     /**
-     * Finds the next greater node based on the capacity constraint.
-     * This method is only used for count operation.
+     * Gets the parking lot with the given capacity constraint.
      *
-     * @param capacityConstraint the capacity constraint to compare
-     * @return the next greater node in the tree
+     * @param capacityConstraint the capacity constraint to look up
+     * @return the parking lot, or null if there is no such parking lot
      */
-    public Node countHelper(int capacityConstraint){
-
-        Node current = root;
-        Node nextGreater = null;
+    @Override
+    public ParkingLot get(int capacityConstraint){
+        Node node = index.get(capacityConstraint);
+        return node == null ? null : node.pl;
+    }
 
-        while(current!=null){
+    /**
+     * Finds the parking lot with the smallest capacity constraint greater than or equal to the given one that has a property.
+     *
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property the required property, or ANY
+     * @return the next greater parking lot with the property, or null if there is none
+     */
+    @Override
+    public ParkingLot findNextGreater(int capacityConstraint, int property){
 
-            if (capacityConstraint < current.pl.getCapacityConstraint()){
-                nextGreater = current;
-                current = current.left;
-            }
-            else{
-                current = current.right;
-            }
+        // Check if there exists a suitable node with the given capacity constraint.
+        Node exact = index.get(capacityConstraint);
+        if (exact != null && LotIndex.hasProperty(exact.pl, property)){
+            return exact.pl;
         }
 
-        return nextGreater;
+        return lotOf(findNextGreater(root, capacityConstraint, true, property));
     }
 
     /**
-     * Finds the next greater or equal node based on the capacity constraint.
+     * Finds the parking lot with the smallest capacity constraint greater than the given parking lot's that has a property.
      *
+     * @param pl the parking lot whose next greater parking lot is to be found
+     * @param property the required property, or ANY
+     * @return the next greater parking lot with the property, or null if there is none
+     */
+    @Override
+    public ParkingLot findNextGreater(ParkingLot pl, int property){
+        return lotOf(findNextGreater(root, pl.getCapacityConstraint(), false, property));
+    }
+
+    /**
+     * Recursive helper method to find the next greater node with a property in a subtree.
+     * Subtrees without the property are skipped, so the search visits O(log n) nodes.
+     *
+     * @param node the root of the subtree
      * @param capacityConstraint the capacity constraint to compare
-     * @return the next greater node in the tree
+     * @param inclusive whether a node with the given capacity constraint qualifies
+     * @param property the required property, or ANY
+     * @return the next greater node with the property in the subtree, or null if there is none
      */
-    public Node findNextGreater(int capacityConstraint){
+    private Node findNextGreater(Node node, int capacityConstraint, boolean inclusive, int property){
 
-        // Check if there exists a node with the given capacity constraint.
-        if (hashTable[capacityConstraint] != null){
-            return hashTable[capacityConstraint];
+        if (node == null || (node.properties & property) != property){
+            return null;
         }
 
-        // Find the node that has the parking lot with next greater capacity constraint.
-        Node current = root;
-        Node nextGreater = null;
-
-        while(current!=null){
-
-            if (capacityConstraint <= current.pl.getCapacityConstraint()){
-                nextGreater = current;
-                current = current.left;
-            }
-            else{
-                current = current.right;
-            }
+        // The node and its left subtree are too small.
+        int key = node.pl.getCapacityConstraint();
+        if (key < capacityConstraint || (key == capacityConstraint && !inclusive)){
+            return findNextGreater(node.right, capacityConstraint, inclusive, property);
         }
 
-        return nextGreater;
+        Node found = findNextGreater(node.left, capacityConstraint, inclusive, property);
+        if (found != null){
+            return found;
+        }
+        if (LotIndex.hasProperty(node.pl, property)){
+            return node;
+        }
+        return findNextGreater(node.right, capacityConstraint, inclusive, property);
     }
 
     /**
-     * Finds the next smaller or equal node based on the capacity constraint.
+     * Finds the parking lot with the greatest capacity constraint smaller than or equal to the given one that has a property.
      *
      * @param capacityConstraint the capacity constraint to compare
-     * @return the next smaller node in the tree
+     * @param property the required property, or ANY
+     * @return the next smaller parking lot with the property, or null if there is none
      */
-    public Node findNextSmaller(int capacityConstraint){
+    @Override
+    public ParkingLot findNextSmaller(int capacityConstraint, int property){
 
-        // Check if there exists a node with the given capacity constraint.
-        if (hashTable[capacityConstraint] != null){
-            return hashTable[capacityConstraint];
+        // Check if there exists a suitable node with the given capacity constraint.
+        Node exact = index.get(capacityConstraint);
+        if (exact != null && LotIndex.hasProperty(exact.pl, property)){
+            return exact.pl;
         }
 
-        // Find the node that has the parking lot with next smaller capacity constraint.
-        Node current = root;
-        Node nextSmaller = null;
+        return lotOf(findNextSmaller(root, capacityConstraint, property));
+    }
+
+    /**
+     * Gets the parking lot of a node.
+     *
+     * @param node the node
+     * @return the parking lot of the node, or null if the node is null
+     */
+    private static ParkingLot lotOf(Node node){
+        return node == null ? null : node.pl;
+    }
 
-        while(current!=null){
+    /**
+     * Recursive helper method to find the next smaller or equal node with a property in a subtree.
+     *
+     * @param node the root of the subtree
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property the required property, or ANY
+     * @return the next smaller node with the property in the subtree, or null if there is none
+     */
+    private Node findNextSmaller(Node node, int capacityConstraint, int property){
 
-            if (capacityConstraint >= current.pl.getCapacityConstraint()){
-                nextSmaller = current;
-                current = current.right;
-            }
-            else{
-                current = current.left;
-            }
+        if (node == null || (node.properties & property) != property){
+            return null;
+        }
+
+        // The node and its right subtree are too large.
+        if (node.pl.getCapacityConstraint() > capacityConstraint){
+            return findNextSmaller(node.left, capacityConstraint, property);
         }
 
-        return nextSmaller;
+        Node found = findNextSmaller(node.right, capacityConstraint, property);
+        if (found != null){
+            return found;
+        }
+        if (LotIndex.hasProperty(node.pl, property)){
+            return node;
+        }
+        return findNextSmaller(node.left, capacityConstraint, property);
     }
 
     /**
@@ -290,8 +429,8 @@ public class AVLTree {
         }
 
         // Update heights.
-        updateHeight(node);
-        updateHeight(leftChild);
+        update(node);
+        update(leftChild);
 
         // Return the new root.
         return leftChild;
@@ -319,67 +458,97 @@ public class AVLTree {
         }
 
         // Update heights.
-        updateHeight(node);
-        updateHeight(rightChild);
+        update(node);
+        update(rightChild);
 
         // Return the new root.
         return rightChild;
     }
 
     /**
-     * Updates the height of a node based on its children's heights.
+     * Gets the total number of trucks in the subtree of a node.
      *
-     * @param node the node whose height is to be updated
+     * @param node the root of the subtree
+     * @return the truck sum of the subtree, or 0 if the node is null
      */
-    private void updateHeight(Node node){
-        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    private long truckSum(Node node){
+        return node == null ? 0 : node.truckSum;
     }
 
     /**
-     * Balances the tree after an insertion operation.
+     * Gets the properties that hold for at least one parking lot in the subtree of a node.
      *
-     * @param node the node to balance
-     * @param pl the inserted ParkingLot object
-     * @return the balanced node
+     * @param node the root of the subtree
+     * @return the properties of the subtree, or 0 if the node is null
      */
-    private Node balanceInsertion(Node node, ParkingLot pl){
+    private int properties(Node node){
+        return node == null ? 0 : node.properties;
+    }
 
-        // If this node is unbalanced, handle the four cases.
-        int balanceFactor = balanceFactor(node);
+    /**
+     * Updates the height and the aggregates of a node based on its children.
+     *
+     * @param node the node to be updated
+     */
+    private void update(Node node){
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        updateAggregates(node);
+    }
 
-        // Left-Left Case
-        if (balanceFactor > 1 && pl.getCapacityConstraint() < node.left.pl.getCapacityConstraint())
-            return rightRotate(node);
+    /**
+     * Updates the truck sum and the properties of a node based on its children and its parking lot.
+     *
+     * @param node the node to be updated
+     */
+    private void updateAggregates(Node node){
+        node.truckSum = truckSum(node.left) + truckSum(node.right) + node.pl.getTruckCount();
+        node.properties = properties(node.left) | properties(node.right) | LotIndex.properties(node.pl);
+    }
 
-        // Right-Right Case
-        if (balanceFactor < -1 && pl.getCapacityConstraint() > node.right.pl.getCapacityConstraint())
-            return leftRotate(node);
+    /**
+     * Recomputes the aggregates on the path from a parking lot's node towards the root, as far as they change.
+     * Must be called whenever the trucks of a parking lot in the tree change.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot that changed
+     */
+    @Override
+    public void refresh(int capacityConstraint){
+        propagate(index.get(capacityConstraint));
+    }
 
-        // Left-Right Case
-        if (balanceFactor > 1 && pl.getCapacityConstraint() > node.left.pl.getCapacityConstraint()) {
-            node.left = leftRotate(node.left);
-            node.left.parent = node;
-            return rightRotate(node);
-        }
+    /**
+     * Counts the trucks in the parking lots with a capacity constraint greater than the given value.
+     *
+     * @param capacityConstraint the exclusive lower bound of the capacity constraints
+     * @return the number of trucks in those parking lots
+     */
+    @Override
+    public long countTrucksAbove(int capacityConstraint){
+        Node current = root;
+        long count = 0;
 
-        // Right-Left Case
-        if (balanceFactor < -1 && pl.getCapacityConstraint() < node.right.pl.getCapacityConstraint()) {
-            node.right = rightRotate(node.right);
-            node.right.parent = node;
-            return leftRotate(node);
+        while (current != null){
+
+            // This node and its right subtree are above the bound, continue on the left.
+            if (capacityConstraint < current.pl.getCapacityConstraint()){
+                count += current.pl.getTruckCount() + truckSum(current.right);
+                current = current.left;
+            }
+            else{
+                current = current.right;
+            }
         }
 
-        // Return the node if this node is balanced.
-        return node;
+        return count;
     }
 
     /**
-     * Balances the tree after a deletion operation.
+     * Balances a node whose children are balanced and whose height is up to date.
      *
      * @param node the node to balance
-     * @return the balanced node
+     * @return the root of the balanced subtree, which takes the place of the node
      */
-    private Node balanceDeletion(Node node){
+    private Node balance(Node node){
 
         // If this node is unbalanced, handle the four cases.
         int balanceFactor = balanceFactor(node);
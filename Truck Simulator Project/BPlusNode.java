@@ -0,0 +1,32 @@
+/**
+ * A class representing a node of a B+ tree of parking lots.
+ * A leaf holds up to ORDER parking lots sorted by capacity constraint, an inner node holds up to ORDER children
+ * together with a lower bound of the capacity constraints of each child.
+ * The arrays have room for one more entry, so a node can overflow before it is split.
+ */
+public class BPlusNode {
+
+    static final int ORDER = 32; // Maximum number of parking lots or children of a node
+    static final int MIN = ORDER / 2; // Minimum number of parking lots or children of a node other than the root
+
+    final boolean leaf; // whether the node holds parking lots instead of children
+    int count; // number of parking lots or children of the node
+    final int[] keys; // capacity constraints of the parking lots, or the lower bounds of the children
+    final ParkingLot[] lots; // parking lots of a leaf, null for an inner node
+    final BPlusNode[] children; // children of an inner node, null for a leaf
+    long truckSum; // total number of trucks in the parking lots of this node's subtree
+    int properties; // properties of LotIndex that hold for at least one parking lot in this node's subtree
+
+    /**
+     * Constructs an empty node.
+     * The aggregates are computed by the tree when the node is filled.
+     *
+     * @param leaf whether the node holds parking lots instead of children
+     */
+    public BPlusNode(boolean leaf) {
+        this.leaf = leaf;
+        this.keys = new int[ORDER + 1];
+        this.lots = leaf ? new ParkingLot[ORDER + 1] : null;
+        this.children = leaf ? null : new BPlusNode[ORDER + 1];
+    }
+}
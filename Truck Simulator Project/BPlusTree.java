@@ -0,0 +1,546 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class representing a B+ tree of parking lots ordered by capacity constraint.
+ * Parking lots are kept only in the leaves, and every node holds up to BPlusNode.ORDER entries in arrays,
+ * so a search reads a few wide nodes instead of a long chain of binary nodes.
+ * Like the AVL tree, every node keeps the truck sum and the properties of its subtree, so the searches skip
+ * the subtrees without the required property and the truck counts are computed along a single path.
+ */
+public class BPlusTree implements LotIndex {
+
+    private BPlusNode root; // Root node of the tree, an empty leaf if the tree is empty
+    private int size; // Number of parking lots in the tree
+
+    /**
+     * Constructs an empty tree.
+     */
+    public BPlusTree() {
+        this.root = new BPlusNode(true);
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public boolean contains(int capacityConstraint){
+        return get(capacityConstraint) != null;
+    }
+
+    @Override
+    public ParkingLot get(int capacityConstraint){
+        BPlusNode node = root;
+        while (!node.leaf){
+            node = node.children[route(node, capacityConstraint)];
+        }
+
+        int i = lowerBound(node, capacityConstraint);
+        return i < node.count && node.keys[i] == capacityConstraint ? node.lots[i] : null;
+    }
+
+    /**
+     * Inserts a new parking lot into the tree.
+     * A node that overflows is split in half, and the new right half is added to its parent.
+     *
+     * @param pl the ParkingLot object to insert
+     */
+    @Override
+    public void insert(ParkingLot pl){
+        BPlusNode sibling = insert(root, pl);
+
+        // The root was split, so the tree grows by one level.
+        if (sibling != null){
+            BPlusNode newRoot = new BPlusNode(false);
+            newRoot.children[0] = root;
+            newRoot.keys[0] = root.keys[0];
+            newRoot.children[1] = sibling;
+            newRoot.keys[1] = sibling.keys[0];
+            newRoot.count = 2;
+            update(newRoot);
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Recursive helper method to insert a parking lot into a subtree.
+     *
+     * @param node the root of the subtree
+     * @param pl the ParkingLot object to insert
+     * @return the right half of the node if it was split, null otherwise
+     */
+    private BPlusNode insert(BPlusNode node, ParkingLot pl){
+        int key = pl.getCapacityConstraint();
+
+        if (node.leaf){
+            int i = lowerBound(node, key);
+
+            // Don't take an action if a parking lot with the same capacity constraint already exists.
+            if (i < node.count && node.keys[i] == key){
+                return null;
+            }
+            insertAt(node, i, key, pl, null);
+            size++;
+        }
+        else{
+            int i = route(node, key);
+            BPlusNode sibling = insert(node.children[i], pl);
+            if (sibling != null){
+                insertAt(node, i + 1, sibling.keys[0], null, sibling);
+            }
+        }
+
+        update(node);
+        return node.count > BPlusNode.ORDER ? split(node) : null;
+    }
+
+    /**
+     * Moves the upper half of an overflowing node to a new node.
+     *
+     * @param node the node to split
+     * @return the new node holding the upper half
+     */
+    private BPlusNode split(BPlusNode node){
+        int half = node.count / 2;
+        BPlusNode sibling = new BPlusNode(node.leaf);
+        sibling.count = node.count - half;
+
+        System.arraycopy(node.keys, half, sibling.keys, 0, sibling.count);
+        if (node.leaf){
+            System.arraycopy(node.lots, half, sibling.lots, 0, sibling.count);
+            Arrays.fill(node.lots, half, node.count, null);
+        }
+        else{
+            System.arraycopy(node.children, half, sibling.children, 0, sibling.count);
+            Arrays.fill(node.children, half, node.count, null);
+        }
+        node.count = half;
+
+        update(node);
+        update(sibling);
+        return sibling;
+    }
+
+    /**
+     * Builds the tree from sorted parking lots level by level, spreading the entries evenly over full-sized nodes.
+     *
+     * @param sorted the parking lots in increasing order of capacity constraint, without duplicates
+     * @throws IllegalStateException if the tree is not empty
+     */
+    @Override
+    public void build(List<ParkingLot> sorted){
+        if (size > 0){
+            throw new IllegalStateException("Only an empty tree can be built");
+        }
+        if (sorted.isEmpty()){
+            return;
+        }
+
+        // Fill the leaves.
+        ArrayList<BPlusNode> level = new ArrayList<BPlusNode>();
+        int n = sorted.size();
+        int nodes = (n + BPlusNode.ORDER - 1) / BPlusNode.ORDER;
+        for (int k = 0; k < nodes; k++){
+            BPlusNode leaf = new BPlusNode(true);
+            for (int i = (int) ((long) k * n / nodes); i < (int) ((long) (k + 1) * n / nodes); i++){
+                ParkingLot pl = sorted.get(i);
+                leaf.keys[leaf.count] = pl.getCapacityConstraint();
+                leaf.lots[leaf.count++] = pl;
+            }
+            update(leaf);
+            level.add(leaf);
+        }
+
+        // Group the nodes of each level under the nodes of the level above until a single root is left.
+        while (level.size() > 1){
+            ArrayList<BPlusNode> above = new ArrayList<BPlusNode>();
+            n = level.size();
+            nodes = (n + BPlusNode.ORDER - 1) / BPlusNode.ORDER;
+            for (int k = 0; k < nodes; k++){
+                BPlusNode inner = new BPlusNode(false);
+                for (int i = (int) ((long) k * n / nodes); i < (int) ((long) (k + 1) * n / nodes); i++){
+                    BPlusNode child = level.get(i);
+                    inner.keys[inner.count] = child.keys[0];
+                    inner.children[inner.count++] = child;
+                }
+                update(inner);
+                above.add(inner);
+            }
+            level = above;
+        }
+
+        root = level.get(0);
+        size = sorted.size();
+    }
+
+    /**
+     * Deletes a parking lot from the tree based on its capacity constraint.
+     * A node that falls below half of its capacity borrows an entry from a sibling, or is merged with it.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot to delete
+     */
+    @Override
+    public void delete(int capacityConstraint){
+        delete(root, capacityConstraint);
+
+        // The root has a single child left, so the tree shrinks by one level.
+        if (!root.leaf && root.count == 1){
+            root = root.children[0];
+        }
+    }
+
+    /**
+     * Recursive helper method to delete a parking lot from a subtree.
+     *
+     * @param node the root of the subtree
+     * @param capacityConstraint the capacity constraint of the parking lot to delete
+     * @return true if the parking lot was found and deleted, false otherwise
+     */
+    private boolean delete(BPlusNode node, int capacityConstraint){
+        if (node.leaf){
+            int i = lowerBound(node, capacityConstraint);
+            if (i == node.count || node.keys[i] != capacityConstraint){
+                return false;
+            }
+            removeAt(node, i);
+            size--;
+        }
+        else{
+            int i = route(node, capacityConstraint);
+            if (!delete(node.children[i], capacityConstraint)){
+                return false;
+            }
+            if (node.children[i].count < BPlusNode.MIN){
+                rebalance(node, i);
+            }
+        }
+
+        update(node);
+        return true;
+    }
+
+    /**
+     * Refills a child that fell below half of its capacity from one of its siblings.
+     *
+     * @param parent the parent of the child
+     * @param i the position of the child in its parent
+     */
+    private void rebalance(BPlusNode parent, int i){
+        if (i > 0 && parent.children[i - 1].count > BPlusNode.MIN){
+            borrowFromLeft(parent, i);
+        }
+        else if (i + 1 < parent.count && parent.children[i + 1].count > BPlusNode.MIN){
+            borrowFromRight(parent, i);
+        }
+        else if (i > 0){
+            merge(parent, i - 1);
+        }
+        else{
+            merge(parent, i);
+        }
+    }
+
+    /**
+     * Moves the last entry of the left sibling of a child to the front of the child.
+     *
+     * @param parent the parent of the child
+     * @param i the position of the child in its parent
+     */
+    private void borrowFromLeft(BPlusNode parent, int i){
+        BPlusNode left = parent.children[i - 1];
+        BPlusNode child = parent.children[i];
+        int last = left.count - 1;
+
+        if (child.leaf){
+            insertAt(child, 0, left.keys[last], left.lots[last], null);
+        }
+        else{
+            // The old first child keeps the old separator as its lower bound.
+            child.keys[0] = parent.keys[i];
+            insertAt(child, 0, left.keys[last], null, left.children[last]);
+        }
+        parent.keys[i] = child.keys[0];
+        removeAt(left, last);
+
+        update(left);
+        update(child);
+    }
+
+    /**
+     * Moves the first entry of the right sibling of a child to the end of the child.
+     *
+     * @param parent the parent of the child
+     * @param i the position of the child in its parent
+     */
+    private void borrowFromRight(BPlusNode parent, int i){
+        BPlusNode child = parent.children[i];
+        BPlusNode right = parent.children[i + 1];
+
+        if (child.leaf){
+            insertAt(child, child.count, right.keys[0], right.lots[0], null);
+        }
+        else{
+            insertAt(child, child.count, parent.keys[i + 1], null, right.children[0]);
+        }
+        removeAt(right, 0);
+        parent.keys[i + 1] = right.keys[0];
+
+        update(child);
+        update(right);
+    }
+
+    /**
+     * Moves every entry of a child's right sibling to the child and removes the sibling from the parent.
+     *
+     * @param parent the parent of the child
+     * @param i the position of the child in its parent
+     */
+    private void merge(BPlusNode parent, int i){
+        BPlusNode child = parent.children[i];
+        BPlusNode right = parent.children[i + 1];
+
+        if (!right.leaf){
+            right.keys[0] = parent.keys[i + 1];
+        }
+        System.arraycopy(right.keys, 0, child.keys, child.count, right.count);
+        if (child.leaf){
+            System.arraycopy(right.lots, 0, child.lots, child.count, right.count);
+        }
+        else{
+            System.arraycopy(right.children, 0, child.children, child.count, right.count);
+        }
+        child.count += right.count;
+        removeAt(parent, i + 1);
+
+        update(child);
+    }
+
+    /**
+     * Inserts an entry into a node, shifting the following entries to the right.
+     *
+     * @param node the node
+     * @param i the position of the new entry
+     * @param key the capacity constraint or the lower bound of the entry
+     * @param pl the parking lot of the entry if the node is a leaf
+     * @param child the child of the entry if the node is an inner node
+     */
+    private static void insertAt(BPlusNode node, int i, int key, ParkingLot pl, BPlusNode child){
+        System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+        node.keys[i] = key;
+        if (node.leaf){
+            System.arraycopy(node.lots, i, node.lots, i + 1, node.count - i);
+            node.lots[i] = pl;
+        }
+        else{
+            System.arraycopy(node.children, i, node.children, i + 1, node.count - i);
+            node.children[i] = child;
+        }
+        node.count++;
+    }
+
+    /**
+     * Removes an entry from a node, shifting the following entries to the left.
+     *
+     * @param node the node
+     * @param i the position of the entry
+     */
+    private static void removeAt(BPlusNode node, int i){
+        node.count--;
+        System.arraycopy(node.keys, i + 1, node.keys, i, node.count - i);
+        if (node.leaf){
+            System.arraycopy(node.lots, i + 1, node.lots, i, node.count - i);
+            node.lots[node.count] = null;
+        }
+        else{
+            System.arraycopy(node.children, i + 1, node.children, i, node.count - i);
+            node.children[node.count] = null;
+        }
+    }
+
+    /**
+     * Finds the child of an inner node whose range contains a capacity constraint.
+     *
+     * @param node the inner node
+     * @param capacityConstraint the capacity constraint
+     * @return the position of the last child whose lower bound is not above the capacity constraint, 0 if there is none
+     */
+    private static int route(BPlusNode node, int capacityConstraint){
+        int i = node.count - 1;
+        while (i > 0 && node.keys[i] > capacityConstraint){
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the first parking lot of a leaf whose capacity constraint is not below the given one.
+     *
+     * @param node the leaf
+     * @param capacityConstraint the capacity constraint
+     * @return the position of the parking lot, or the number of parking lots in the leaf if there is none
+     */
+    private static int lowerBound(BPlusNode node, int capacityConstraint){
+        int low = 0;
+        int high = node.count;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (node.keys[middle] < capacityConstraint){
+                low = middle + 1;
+            }
+            else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Recomputes the truck sum and the properties of a node from its parking lots or children.
+     *
+     * @param node the node to update
+     */
+    private static void update(BPlusNode node){
+        long truckSum = 0;
+        int properties = 0;
+        for (int i = 0; i < node.count; i++){
+            if (node.leaf){
+                truckSum += node.lots[i].getTruckCount();
+                properties |= LotIndex.properties(node.lots[i]);
+            }
+            else{
+                truckSum += node.children[i].truckSum;
+                properties |= node.children[i].properties;
+            }
+        }
+        node.truckSum = truckSum;
+        node.properties = properties;
+    }
+
+    @Override
+    public void refresh(int capacityConstraint){
+        refresh(root, capacityConstraint);
+    }
+
+    /**
+     * Recursive helper method to update the aggregates on the path to a parking lot.
+     *
+     * @param node the root of the subtree
+     * @param capacityConstraint the capacity constraint of the parking lot that changed
+     */
+    private void refresh(BPlusNode node, int capacityConstraint){
+        if (!node.leaf){
+            refresh(node.children[route(node, capacityConstraint)], capacityConstraint);
+        }
+        update(node);
+    }
+
+    @Override
+    public ParkingLot findNextGreater(int capacityConstraint, int property){
+        return findNextGreater(root, capacityConstraint, true, property);
+    }
+
+    @Override
+    public ParkingLot findNextGreater(ParkingLot pl, int property){
+        return findNextGreater(root, pl.getCapacityConstraint(), false, property);
+    }
+
+    /**
+     * Recursive helper method to find the next greater parking lot with a property in a subtree.
+     * Children without the property are skipped, so the search reads O(log n) nodes.
+     *
+     * @param node the root of the subtree
+     * @param capacityConstraint the capacity constraint to compare
+     * @param inclusive whether a parking lot with the given capacity constraint qualifies
+     * @param property the required property, or ANY
+     * @return the next greater parking lot with the property in the subtree, or null if there is none
+     */
+    private ParkingLot findNextGreater(BPlusNode node, int capacityConstraint, boolean inclusive, int property){
+        if ((node.properties & property) != property){
+            return null;
+        }
+
+        if (node.leaf){
+            int i = lowerBound(node, capacityConstraint);
+            if (!inclusive && i < node.count && node.keys[i] == capacityConstraint){
+                i++;
+            }
+            for (; i < node.count; i++){
+                if (LotIndex.hasProperty(node.lots[i], property)){
+                    return node.lots[i];
+                }
+            }
+            return null;
+        }
+
+        for (int i = route(node, capacityConstraint); i < node.count; i++){
+            ParkingLot found = findNextGreater(node.children[i], capacityConstraint, inclusive, property);
+            if (found != null){
+                return found;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ParkingLot findNextSmaller(int capacityConstraint, int property){
+        return findNextSmaller(root, capacityConstraint, property);
+    }
+
+    /**
+     * Recursive helper method to find the next smaller parking lot with a property in a subtree.
+     *
+     * @param node the root of the subtree
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property the required property, or ANY
+     * @return the next smaller parking lot with the property in the subtree, or null if there is none
+     */
+    private ParkingLot findNextSmaller(BPlusNode node, int capacityConstraint, int property){
+        if ((node.properties & property) != property){
+            return null;
+        }
+
+        if (node.leaf){
+            int i = lowerBound(node, capacityConstraint);
+            if (i < node.count && node.keys[i] == capacityConstraint){
+                i++;
+            }
+            for (i--; i >= 0; i--){
+                if (LotIndex.hasProperty(node.lots[i], property)){
+                    return node.lots[i];
+                }
+            }
+            return null;
+        }
+
+        for (int i = route(node, capacityConstraint); i >= 0; i--){
+            ParkingLot found = findNextSmaller(node.children[i], capacityConstraint, property);
+            if (found != null){
+                return found;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long countTrucksAbove(int capacityConstraint){
+        BPlusNode node = root;
+        long count = 0;
+
+        // The children after the one containing the bound are entirely above it.
+        while (!node.leaf){
+            int i = route(node, capacityConstraint);
+            for (int j = i + 1; j < node.count; j++){
+                count += node.children[j].truckSum;
+            }
+            node = node.children[i];
+        }
+
+        for (int i = node.count - 1; i >= 0 && node.keys[i] > capacityConstraint; i--){
+            count += node.lots[i].getTruckCount();
+        }
+        return count;
+    }
+}
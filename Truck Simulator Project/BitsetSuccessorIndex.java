@@ -0,0 +1,234 @@
+/**
+ * A set of non-negative capacity constraints supporting successor and predecessor searches.
+ * The set is a bitset over the capacity domain with summary levels on top of it:
+ * bit j of a level is set if word j of the level below is not zero.
+ * A search scans at most one word per level upwards and one word per level downwards,
+ * and each level is 64 times smaller than the one below, so a 2^24 domain needs only four levels.
+ * The domain grows on demand to hold the largest capacity constraint added, up to 2^31 for Integer.MAX_VALUE.
+ */
+public class BitsetSuccessorIndex {
+
+    private long[][] levels; // Bit words of every level, levels[0] holds the capacity constraints themselves
+    private long domain; // Number of capacity constraints that fit in levels[0], at most 2^31 so every int fits
+    private int size; // Number of capacity constraints in the set
+
+    /**
+     * Constructs an empty set with a domain of the given size.
+     *
+     * @param domain the initial number of capacity constraints that fit without growing
+     */
+    public BitsetSuccessorIndex(int domain) {
+        build(Math.max(64, domain), null);
+    }
+
+    /**
+     * Constructs an empty set with a small initial domain.
+     */
+    public BitsetSuccessorIndex() {
+        this(64);
+    }
+
+    /**
+     * Checks whether a capacity constraint is in the set.
+     *
+     * @param capacityConstraint the capacity constraint to look up
+     * @return true if it is in the set, false otherwise
+     */
+    public boolean contains(int capacityConstraint){
+        return capacityConstraint >= 0 && capacityConstraint < domain
+                && (levels[0][capacityConstraint >>> 6] & (1L << capacityConstraint)) != 0;
+    }
+
+    /**
+     * Adds a capacity constraint to the set.
+     *
+     * @param capacityConstraint the capacity constraint to add, must not be negative
+     */
+    public void add(int capacityConstraint){
+        if (capacityConstraint < 0){
+            throw new IllegalArgumentException("Negative capacity constraint: " + capacityConstraint);
+        }
+        if (capacityConstraint >= domain){
+            long grown = domain;
+            while (grown <= capacityConstraint){
+                grown *= 2;
+            }
+            build(Math.min(grown, 1L << 31), levels[0]);
+        }
+        if (contains(capacityConstraint)){
+            return;
+        }
+
+        // Set the bit on every level until a word that was already non-zero.
+        int position = capacityConstraint;
+        for (long[] level : levels){
+            long word = level[position >>> 6];
+            level[position >>> 6] = word | (1L << position);
+            if (word != 0){
+                break;
+            }
+            position >>>= 6;
+        }
+        size++;
+    }
+
+    /**
+     * Removes a capacity constraint from the set if exists.
+     *
+     * @param capacityConstraint the capacity constraint to remove
+     */
+    public void remove(int capacityConstraint){
+        if (!contains(capacityConstraint)){
+            return;
+        }
+
+        // Clear the bit on every level until a word that is still non-zero.
+        int position = capacityConstraint;
+        for (long[] level : levels){
+            long word = level[position >>> 6] & ~(1L << position);
+            level[position >>> 6] = word;
+            if (word != 0){
+                break;
+            }
+            position >>>= 6;
+        }
+        size--;
+    }
+
+    /**
+     * Sets or clears a capacity constraint.
+     *
+     * @param capacityConstraint the capacity constraint
+     * @param present true to add it, false to remove it
+     */
+    public void set(int capacityConstraint, boolean present){
+        if (present){
+            add(capacityConstraint);
+        }
+        else{
+            remove(capacityConstraint);
+        }
+    }
+
+    /**
+     * Finds the smallest capacity constraint in the set greater than or equal to the given one.
+     *
+     * @param capacityConstraint the capacity constraint to compare
+     * @return the next greater capacity constraint, or -1 if there is none
+     */
+    public int next(int capacityConstraint){
+        if (capacityConstraint >= domain){
+            return -1;
+        }
+        int position = Math.max(0, capacityConstraint);
+
+        // Go up until a word has a set bit at or after the position.
+        int depth = 0;
+        while (true){
+            long[] level = levels[depth];
+            int wordIndex = position >>> 6;
+            if (wordIndex >= level.length){
+                return -1;
+            }
+            long word = level[wordIndex] & (-1L << position);
+            if (word != 0){
+                position = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                break;
+            }
+            if (depth == levels.length - 1){
+                return -1;
+            }
+            position = wordIndex + 1;
+            depth++;
+        }
+
+        // Go down taking the lowest set bit of every word.
+        while (depth > 0){
+            depth--;
+            position = (position << 6) + Long.numberOfTrailingZeros(levels[depth][position]);
+        }
+        return position;
+    }
+
+    /**
+     * Finds the greatest capacity constraint in the set smaller than or equal to the given one.
+     *
+     * @param capacityConstraint the capacity constraint to compare
+     * @return the next smaller capacity constraint, or -1 if there is none
+     */
+    public int prev(int capacityConstraint){
+        if (capacityConstraint < 0){
+            return -1;
+        }
+        int position = (int) Math.min(capacityConstraint, domain - 1);
+
+        // Go up until a word has a set bit at or before the position.
+        int depth = 0;
+        while (true){
+            int wordIndex = position >>> 6;
+            long word = levels[depth][wordIndex] & (-1L >>> (63 - (position & 63)));
+            if (word != 0){
+                position = (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+                break;
+            }
+            if (depth == levels.length - 1 || wordIndex == 0){
+                return -1;
+            }
+            position = wordIndex - 1;
+            depth++;
+        }
+
+        // Go down taking the highest set bit of every word.
+        while (depth > 0){
+            depth--;
+            position = (position << 6) + 63 - Long.numberOfLeadingZeros(levels[depth][position]);
+        }
+        return position;
+    }
+
+    /**
+     * Gets the number of capacity constraints in the set.
+     *
+     * @return the size of the set
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Allocates the levels for a domain and fills them from the bits of an old bottom level.
+     *
+     * @param newDomain the number of capacity constraints that fit in the bottom level
+     * @param bits the old bottom level to copy, or null to start empty
+     */
+    private void build(long newDomain, long[] bits){
+        int levelCount = 1;
+        for (long words = (newDomain + 63L) >>> 6; words > 1; words = (words + 63) >>> 6){
+            levelCount++;
+        }
+
+        levels = new long[levelCount][];
+        long words = (newDomain + 63L) >>> 6;
+        for (int depth = 0; depth < levelCount; depth++){
+            levels[depth] = new long[(int) words];
+            words = (words + 63) >>> 6;
+        }
+        domain = newDomain;
+
+        if (bits == null){
+            return;
+        }
+
+        // Copy the bottom level and recompute the summaries.
+        System.arraycopy(bits, 0, levels[0], 0, bits.length);
+        for (int depth = 1; depth < levelCount; depth++){
+            long[] below = levels[depth - 1];
+            long[] level = levels[depth];
+            for (int i = 0; i < below.length; i++){
+                if (below[i] != 0){
+                    level[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+import java.util.Arrays;
+
+/**
+ * A calendar queue of timed events for the simulation.
+ * Time is split into buckets of a fixed width that wrap around like the days of a year, and each bucket keeps its
+ * events in a list sorted by time. Scheduling and polling an event take O(1) time on average, because the number
+ * of buckets and their width are adjusted to the number of events and the spacing of their times.
+ * An event is a time, a type and an integer argument, stored in primitive arrays and linked by index, and the
+ * slots of polled events are reused. Events with the same time are polled in the order they were scheduled.
+ */
+public class CalendarQueue {
+
+    private static final int NIL = -1; // Index of the missing event
+    private static final int MIN_BUCKETS = 16; // The number of buckets never shrinks below this
+    private static final int SAMPLES = 64; // Number of event times sampled to estimate the bucket width
+
+    private long[] times; // Time of each event
+    private int[] types; // Type of each event
+    private int[] args; // Argument of each event
+    private int[] next; // Next event in the same bucket, or the next free slot for the slots in the free list
+    private int freeList; // First free slot, NIL if empty
+    private int used; // Number of slots that were ever used
+
+    private int[] buckets; // First event of each bucket, NIL if the bucket is empty
+    private int[] tails; // Last event of each bucket, NIL if the bucket is empty
+    private long width; // Length of time covered by a bucket
+    private int current; // Bucket where the search for the next event starts
+    private long bucketTop; // End of the time covered by the current bucket in the current year
+    private int size; // Number of scheduled events
+
+    private long lastTime; // Time of the last polled event, no event can be scheduled before it
+    private int lastType; // Type of the last polled event
+    private int lastArg; // Argument of the last polled event
+
+    /**
+     * Constructs an empty queue starting at time 0.
+     */
+    public CalendarQueue() {
+        times = new long[MIN_BUCKETS];
+        types = new int[MIN_BUCKETS];
+        args = new int[MIN_BUCKETS];
+        next = new int[MIN_BUCKETS];
+        freeList = NIL;
+
+        buckets = new int[MIN_BUCKETS];
+        tails = new int[MIN_BUCKETS];
+        Arrays.fill(buckets, NIL);
+        Arrays.fill(tails, NIL);
+        width = 1;
+        current = 0;
+        bucketTop = width;
+    }
+
+    /**
+     * Schedules an event.
+     *
+     * @param time the time of the event
+     * @param type the type of the event
+     * @param arg the argument of the event
+     * @throws IllegalArgumentException if the time is before the last polled event
+     */
+    public void schedule(long time, int type, int arg){
+        if (time < lastTime){
+            throw new IllegalArgumentException("Event scheduled at " + time + " before the current time " + lastTime);
+        }
+
+        int event = allocate();
+        times[event] = time;
+        types[event] = type;
+        args[event] = arg;
+        link(event);
+        size++;
+
+        if (size > 2 * buckets.length){
+            resize(2 * buckets.length);
+        }
+    }
+
+    /**
+     * Removes the earliest event. Its time, type and argument are then returned by time(), type() and arg().
+     *
+     * @return true if an event was removed, false if the queue is empty
+     */
+    public boolean poll(){
+        if (size == 0){
+            return false;
+        }
+
+        // Visit the buckets for one year, starting from the current one.
+        int bucket = current;
+        long top = bucketTop;
+        int event = NIL;
+        for (int visited = 0; visited < buckets.length; visited++){
+            int head = buckets[bucket];
+            if (head != NIL && times[head] < top){
+                event = head;
+                break;
+            }
+            bucket = (bucket + 1) & (buckets.length - 1);
+            top += width;
+        }
+
+        // Every event is more than a year ahead, so jump directly to the earliest one.
+        if (event == NIL){
+            for (int i = 0; i < buckets.length; i++){
+                int head = buckets[i];
+                if (head != NIL && (event == NIL || times[head] < times[event])){
+                    event = head;
+                    bucket = i;
+                }
+            }
+            top = (times[event] / width + 1) * width;
+        }
+
+        current = bucket;
+        bucketTop = top;
+        buckets[bucket] = next[event];
+        if (buckets[bucket] == NIL){
+            tails[bucket] = NIL;
+        }
+        size--;
+
+        lastTime = times[event];
+        lastType = types[event];
+        lastArg = args[event];
+        next[event] = freeList;
+        freeList = event;
+
+        if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS){
+            resize(buckets.length / 2);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the time of the last polled event, which is the current time of the simulation.
+     *
+     * @return the time of the event
+     */
+    public long time(){
+        return lastTime;
+    }
+
+    /**
+     * Gets the type of the last polled event.
+     *
+     * @return the type of the event
+     */
+    public int type(){
+        return lastType;
+    }
+
+    /**
+     * Gets the argument of the last polled event.
+     *
+     * @return the argument of the event
+     */
+    public int arg(){
+        return lastArg;
+    }
+
+    /**
+     * Gets the number of scheduled events.
+     *
+     * @return the size of the queue
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Inserts an event into the list of its bucket, after the events with the same or an earlier time.
+     * An event that is not earlier than the last one of its bucket is appended without walking the list.
+     *
+     * @param event the event to insert
+     */
+    private void link(int event){
+        long time = times[event];
+        int bucket = (int) ((time / width) & (buckets.length - 1));
+
+        int tail = tails[bucket];
+        if (tail == NIL || times[tail] <= time){
+            next[event] = NIL;
+            if (tail == NIL){
+                buckets[bucket] = event;
+            }
+            else{
+                next[tail] = event;
+            }
+            tails[bucket] = event;
+            return;
+        }
+
+        int previous = NIL;
+        int following = buckets[bucket];
+        while (following != NIL && times[following] <= time){
+            previous = following;
+            following = next[following];
+        }
+
+        next[event] = following;
+        if (previous == NIL){
+            buckets[bucket] = event;
+        }
+        else{
+            next[previous] = event;
+        }
+    }
+
+    /**
+     * Changes the number of buckets and sets the bucket width to about three times the typical spacing of the events.
+     * The events of each old bucket are moved in order, so the events with the same time keep their order.
+     *
+     * @param count the new number of buckets, a power of two
+     */
+    private void resize(int count){
+        int[] events = new int[size];
+        int n = 0;
+        for (int head : buckets){
+            for (int event = head; event != NIL; event = next[event]){
+                events[n++] = event;
+            }
+        }
+
+        buckets = new int[count];
+        tails = new int[count];
+        Arrays.fill(buckets, NIL);
+        Arrays.fill(tails, NIL);
+        width = estimateWidth(events, n);
+        for (int i = 0; i < n; i++){
+            link(events[i]);
+        }
+
+        current = (int) ((lastTime / width) & (count - 1));
+        bucketTop = (lastTime / width + 1) * width;
+    }
+
+    /**
+     * Estimates a bucket width from the times of evenly spaced events of a list.
+     * Consecutive times of the sorted sample are n / samples events apart on average, so their median gap is scaled
+     * down by that factor. The median keeps a few events far in the future from stretching the buckets.
+     *
+     * @param events the events
+     * @param n the number of events
+     * @return the bucket width, at least 1
+     */
+    private long estimateWidth(int[] events, int n){
+        int samples = Math.min(n, SAMPLES);
+        if (samples < 2){
+            return 1;
+        }
+
+        long[] sample = new long[samples];
+        for (int i = 0; i < samples; i++){
+            sample[i] = times[events[(int) ((long) i * n / samples)]];
+        }
+        Arrays.sort(sample);
+
+        long[] gaps = new long[samples - 1];
+        for (int i = 1; i < samples; i++){
+            gaps[i - 1] = sample[i] - sample[i - 1];
+        }
+        Arrays.sort(gaps);
+        long median = gaps[gaps.length / 2];
+
+        return Math.max(1, 3 * median * samples / n);
+    }
+
+    /**
+     * Takes a slot from the free list, or a new slot if the free list is empty, doubling the arrays when they are full.
+     *
+     * @return the slot of the new event
+     */
+    private int allocate(){
+        if (freeList != NIL){
+            int event = freeList;
+            freeList = next[event];
+            return event;
+        }
+
+        if (used == times.length){
+            int length = times.length * 2;
+            times = Arrays.copyOf(times, length);
+            types = Arrays.copyOf(types, length);
+            args = Arrays.copyOf(args, length);
+            next = Arrays.copyOf(next, length);
+        }
+        return used++;
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * A class mapping capacity constraints to the nodes of an AVL tree for direct lookups.
+ * The index starts as a dense array indexed by the capacity constraint, which grows on demand.
+ * When a capacity constraint would make the array too sparse, or does not fit in an array,
+ * the index switches to an open addressing map from int keys to nodes.
+ */
+public class CapacityIndex {
+
+    private static final int MIN_LENGTH = 64; // Smallest length of the dense array and the map
+    private static final int DENSITY = 8; // The dense array may have at most this many slots per stored node
+    private static final int MAX_DENSE_LENGTH = 1 << 24; // The dense array never grows beyond this length
+
+    private Node[] dense; // Nodes indexed by capacity constraint, null once the index is sparse
+    private int[] keys; // Capacity constraints of the map slots, only used when the index is sparse
+    private Node[] values; // Nodes of the map slots, a null value marks an empty slot
+    private int size; // Number of stored nodes
+
+    /**
+     * Constructs an empty index in dense mode.
+     */
+    public CapacityIndex() {
+        dense = new Node[MIN_LENGTH];
+    }
+
+    /**
+     * Gets the node stored for a capacity constraint.
+     *
+     * @param capacityConstraint the capacity constraint to look up
+     * @return the node, or null if no node is stored for the capacity constraint
+     */
+    public Node get(int capacityConstraint){
+        if (dense != null){
+            return capacityConstraint >= 0 && capacityConstraint < dense.length ? dense[capacityConstraint] : null;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = slot(capacityConstraint, mask); values[i] != null; i = (i + 1) & mask){
+            if (keys[i] == capacityConstraint){
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a node is stored for a capacity constraint.
+     *
+     * @param capacityConstraint the capacity constraint to look up
+     * @return true if a node is stored, false otherwise
+     */
+    public boolean contains(int capacityConstraint){
+        return get(capacityConstraint) != null;
+    }
+
+    /**
+     * Stores a node for a capacity constraint, replacing the previous node if any.
+     *
+     * @param capacityConstraint the capacity constraint of the node
+     * @param node the node to store, must not be null
+     */
+    public void put(int capacityConstraint, Node node){
+        if (dense != null && capacityConstraint >= dense.length){
+            growDense(capacityConstraint);
+        }
+        if (dense != null){
+            if (capacityConstraint >= 0){
+                if (dense[capacityConstraint] == null){
+                    size++;
+                }
+                dense[capacityConstraint] = node;
+                return;
+            }
+
+            // Negative capacity constraints can only be stored in the map.
+            toSparse();
+        }
+
+        int mask = keys.length - 1;
+        int i = slot(capacityConstraint, mask);
+        while (values[i] != null){
+            if (keys[i] == capacityConstraint){
+                values[i] = node;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = capacityConstraint;
+        values[i] = node;
+        size++;
+
+        // Keep the load factor at most one half.
+        if (size * 2 > keys.length){
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes the node stored for a capacity constraint if exists.
+     *
+     * @param capacityConstraint the capacity constraint to remove
+     */
+    public void remove(int capacityConstraint){
+        if (dense != null){
+            if (capacityConstraint >= 0 && capacityConstraint < dense.length && dense[capacityConstraint] != null){
+                dense[capacityConstraint] = null;
+                size--;
+            }
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int i = slot(capacityConstraint, mask);
+        while (values[i] != null && keys[i] != capacityConstraint){
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null){
+            return;
+        }
+        size--;
+
+        // Shift the following entries of the probe sequence back, so lookups never stop at a hole.
+        int hole = i;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask){
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)){
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = null;
+    }
+
+    /**
+     * Gets the number of stored nodes.
+     *
+     * @return the size of the index
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Checks whether the index is in dense array mode.
+     *
+     * @return true if the index is a dense array, false if it is an open addressing map
+     */
+    public boolean isDense(){
+        return dense != null;
+    }
+
+    /**
+     * Grows the dense array to hold a capacity constraint, or switches to the map if the array would be too sparse.
+     *
+     * @param capacityConstraint the capacity constraint that does not fit in the array
+     */
+    private void growDense(int capacityConstraint){
+        long length = dense.length;
+        while (length <= capacityConstraint){
+            length *= 2;
+        }
+
+        if (length > MAX_DENSE_LENGTH || length > (long) Math.max(MIN_LENGTH, size + 1) * DENSITY){
+            toSparse();
+            return;
+        }
+
+        Node[] grown = new Node[(int) length];
+        System.arraycopy(dense, 0, grown, 0, dense.length);
+        dense = grown;
+    }
+
+    /**
+     * Moves the nodes of the dense array into an open addressing map.
+     */
+    private void toSparse(){
+        Node[] old = dense;
+        dense = null;
+        int length = MIN_LENGTH;
+        while (length < size * 2 + 2){
+            length *= 2;
+        }
+        keys = new int[length];
+        values = new Node[length];
+
+        int mask = length - 1;
+        for (int cc = 0; cc < old.length; cc++){
+            if (old[cc] != null){
+                insert(cc, old[cc], mask);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the map with a new length.
+     *
+     * @param length the new length of the map, a power of two
+     */
+    private void resize(int length){
+        int[] oldKeys = keys;
+        Node[] oldValues = values;
+        keys = new int[length];
+        values = new Node[length];
+
+        int mask = length - 1;
+        for (int i = 0; i < oldKeys.length; i++){
+            if (oldValues[i] != null){
+                insert(oldKeys[i], oldValues[i], mask);
+            }
+        }
+    }
+
+    /**
+     * Stores a node in the first free slot of its probe sequence. The key must not be in the map.
+     *
+     * @param capacityConstraint the capacity constraint of the node
+     * @param node the node to store
+     * @param mask the length of the map minus one
+     */
+    private void insert(int capacityConstraint, Node node, int mask){
+        int i = slot(capacityConstraint, mask);
+        while (values[i] != null){
+            i = (i + 1) & mask;
+        }
+        keys[i] = capacityConstraint;
+        values[i] = node;
+    }
+
+    /**
+     * Gets the home slot of a capacity constraint in the map.
+     *
+     * @param capacityConstraint the capacity constraint
+     * @param mask the length of the map minus one
+     * @return the index of the home slot
+     */
+    private static int slot(int capacityConstraint, int mask){
+        int hash = capacityConstraint * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A class reading the operations of the simulator directly from the bytes of an input stream.
+ * The input is a stream of whitespace separated tokens, like for a Scanner: an operation keyword followed by its integers.
+ * Keywords are matched against the buffer and integers are parsed from the digits, so no Strings are created.
+ * A token that is not a valid integer is left unread, so the next operation starts from it, as Scanner.nextInt does.
+ */
+public class CommandReader {
+
+    public static final int END = -1; // End of the input
+    public static final int UNKNOWN = 0; // A token that is not an operation keyword
+    public static final int CREATE_PARKING_LOT = 1;
+    public static final int DELETE_PARKING_LOT = 2;
+    public static final int ADD_TRUCK = 3;
+    public static final int READY = 4;
+    public static final int LOAD = 5;
+    public static final int COUNT = 6;
+    public static final int COUNT_RANGE = 7;
+
+    private static final byte[][] KEYWORDS = { // Keyword of each operation, indexed by the operation
+            null,
+            "create_parking_lot".getBytes(),
+            "delete_parking_lot".getBytes(),
+            "add_truck".getBytes(),
+            "ready".getBytes(),
+            "load".getBytes(),
+            "count".getBytes(),
+            "count_range".getBytes()
+    };
+    private static final int[] ARITY = {0, 2, 1, 2, 1, 2, 1, 2}; // Number of integers of each operation
+
+    private final InputStream in; // Stream of the input
+    private final byte[] buffer; // Bytes read from the stream
+    private int position; // Index of the next unread byte in the buffer
+    private int limit; // Number of valid bytes in the buffer
+    private boolean exhausted; // Whether the stream has no more bytes
+
+    /**
+     * Constructs a reader over an input stream.
+     *
+     * @param in the stream of the input
+     */
+    public CommandReader(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[1 << 16];
+    }
+
+    /**
+     * Gets the number of integers an operation takes.
+     *
+     * @param operation the operation
+     * @return the number of integers after the keyword
+     */
+    public static int arity(int operation){
+        return ARITY[operation];
+    }
+
+    /**
+     * Reads the next token and returns the operation it names.
+     *
+     * @return the operation, UNKNOWN if the token is not a keyword, or END if there are no more tokens
+     * @throws IOException if the input cannot be read
+     */
+    public int nextOperation() throws IOException {
+        if (!nextToken()){
+            return END;
+        }
+
+        int length = tokenLength();
+        int operation = UNKNOWN;
+        for (int i = 1; i < KEYWORDS.length; i++){
+            if (KEYWORDS[i].length == length && matches(KEYWORDS[i])){
+                operation = i;
+                break;
+            }
+        }
+
+        position += length;
+        return operation;
+    }
+
+    /**
+     * Reads the integers of an operation. Reading stops at the first token that is not an integer, which is left unread.
+     *
+     * @param values the array to store the integers in
+     * @param count the number of integers to read
+     * @return the number of integers read
+     * @throws IOException if the input cannot be read
+     */
+    public int readInts(int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++){
+            if (!readInt(values, i)){
+                return i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the integers of an operation from the current line. Reading stops at the end of the line,
+     * or at the first token that is not an integer, which is left unread.
+     *
+     * @param values the array to store the integers in
+     * @param count the number of integers to read
+     * @return the number of integers read
+     * @throws IOException if the input cannot be read
+     */
+    public int readIntsOnLine(int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++){
+            if (endOfLine() || !readInt(values, i)){
+                return i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the current line has no more tokens. The whitespace before the end of the line is skipped,
+     * but the line break itself is left unread.
+     *
+     * @return true if the next token is on a later line or there are no more tokens, false otherwise
+     * @throws IOException if the input cannot be read
+     */
+    public boolean endOfLine() throws IOException {
+        while (true){
+            while (position < limit && buffer[position] <= ' ' && buffer[position] != '\n'){
+                position++;
+            }
+            if (position < limit){
+                return buffer[position] == '\n';
+            }
+            if (!fill()){
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Skips the rest of the current line, including the line break.
+     *
+     * @return true if anything was skipped, false at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    public boolean skipLine() throws IOException {
+        boolean skipped = false;
+        while (true){
+            while (position < limit){
+                skipped = true;
+                if (buffer[position++] == '\n'){
+                    return true;
+                }
+            }
+            if (!fill()){
+                return skipped;
+            }
+        }
+    }
+
+    /**
+     * Reads the next token as an integer. A token that is not a valid integer is left unread.
+     *
+     * @param values the array to store the integer in
+     * @param i the index to store the integer at
+     * @return true if an integer was read, false otherwise
+     * @throws IOException if the input cannot be read
+     */
+    private boolean readInt(int[] values, int i) throws IOException {
+        if (!nextToken()){
+            return false;
+        }
+
+        int length = tokenLength();
+        int index = position;
+        int end = position + length;
+        boolean negative = buffer[index] == '-';
+        if (negative || buffer[index] == '+'){
+            index++;
+        }
+        if (index == end){
+            return false;
+        }
+
+        // Accumulate negatively, so Integer.MIN_VALUE can be parsed too.
+        long value = 0;
+        for (; index < end; index++){
+            int digit = buffer[index] - '0';
+            if (digit < 0 || digit > 9){
+                return false;
+            }
+            value = value * 10 - digit;
+            if (value < Integer.MIN_VALUE){
+                return false;
+            }
+        }
+        if (!negative && value == Integer.MIN_VALUE){
+            return false;
+        }
+
+        values[i] = (int) (negative ? value : -value);
+        position = end;
+        return true;
+    }
+
+    /**
+     * Skips the whitespace before the next token and makes sure the whole token is in the buffer.
+     *
+     * @return true if there is a token at the position, false at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    private boolean nextToken() throws IOException {
+        while (true){
+            while (position < limit && buffer[position] <= ' '){
+                position++;
+            }
+            if (position < limit){
+                break;
+            }
+            if (!fill()){
+                return false;
+            }
+        }
+
+        // Read more until the token ends inside the buffer.
+        while (scanToken() == limit){
+            if (!fill()){
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the length of the token at the position, which must be in the buffer.
+     *
+     * @return the length of the token
+     */
+    private int tokenLength(){
+        return scanToken() - position;
+    }
+
+    /**
+     * Finds the end of the token at the position.
+     *
+     * @return the index after the last byte of the token in the buffer
+     */
+    private int scanToken(){
+        int end = position;
+        while (end < limit && buffer[end] > ' '){
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether the token at the position starts with a keyword.
+     *
+     * @param keyword the keyword to compare
+     * @return true if the bytes match, false otherwise
+     */
+    private boolean matches(byte[] keyword){
+        for (int i = 0; i < keyword.length; i++){
+            if (buffer[position + i] != keyword[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the beginning of the buffer and reads more bytes after them.
+     *
+     * @return true if bytes were read, false if the stream has no more bytes
+     * @throws IOException if the input cannot be read
+     */
+    private boolean fill() throws IOException {
+        if (exhausted){
+            return false;
+        }
+
+        int unread = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, unread);
+        position = 0;
+        limit = unread;
+
+        // A token longer than the buffer is cut, its head is read as a token of its own.
+        if (limit == buffer.length){
+            return false;
+        }
+
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0){
+            exhausted = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+}
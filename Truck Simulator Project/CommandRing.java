@@ -0,0 +1,101 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded single-producer single-consumer queue of commands, each command being four integers.
+ * The commands are stored in a ring of ints, and the producer and the consumer only share two counters:
+ * the producer publishes a command with an ordered write of the tail, and the consumer frees its slot with an
+ * ordered write of the head. Each side keeps a cached copy of the other side's counter and rereads it only when
+ * the ring looks full or empty, so most commands pass without touching the shared counters.
+ * Exactly one thread may call offer and exactly one thread may call take.
+ */
+public class CommandRing {
+
+    public static final int WIDTH = 4; // Number of integers of a command
+
+    private final int[] ring; // Integers of the commands
+    private final int mask; // Number of commands the ring can hold minus one
+    private final AtomicLong head; // Number of commands the consumer has taken
+    private final AtomicLong tail; // Number of commands the producer has published
+
+    private long cachedHead; // Value of head last seen by the producer
+    private long cachedTail; // Value of tail last seen by the consumer
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param capacity the number of commands the ring can hold, a power of two
+     * @throws IllegalArgumentException if the capacity is not a power of two
+     */
+    public CommandRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.ring = new int[capacity * WIDTH];
+        this.mask = capacity - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+    }
+
+    /**
+     * Adds a command, waiting while the ring is full. Called by the producer only.
+     *
+     * @param a the first integer of the command
+     * @param b the second integer of the command
+     * @param c the third integer of the command
+     * @param d the fourth integer of the command
+     */
+    public void offer(int a, int b, int c, int d) {
+        long t = tail.get();
+        int spins = 0;
+        while (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) {
+                pause(++spins);
+            }
+        }
+
+        int index = (int) (t & mask) * WIDTH;
+        ring[index] = a;
+        ring[index + 1] = b;
+        ring[index + 2] = c;
+        ring[index + 3] = d;
+        tail.lazySet(t + 1);
+    }
+
+    /**
+     * Takes the oldest command, waiting while the ring is empty. Called by the consumer only.
+     *
+     * @param command the array to store the four integers of the command in
+     */
+    public void take(int[] command) {
+        long h = head.get();
+        int spins = 0;
+        while (h == cachedTail) {
+            cachedTail = tail.get();
+            if (h == cachedTail) {
+                pause(++spins);
+            }
+        }
+
+        int index = (int) (h & mask) * WIDTH;
+        command[0] = ring[index];
+        command[1] = ring[index + 1];
+        command[2] = ring[index + 2];
+        command[3] = ring[index + 3];
+        head.lazySet(h + 1);
+    }
+
+    /**
+     * Waits a little before the other side's counter is read again.
+     * The wait spins for a while in case the other side is about to move, then gives the core away.
+     *
+     * @param spins the number of times the counter was read in vain
+     */
+    private static void pause(int spins) {
+        if (spins < 1000) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+}
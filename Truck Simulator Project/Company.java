@@ -1,29 +1,79 @@
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * A class representing a company, which manages a fleet of trucks.
  */
 public class Company {
 
-    FileWriter writer; // a writer object for outputting the operations' information.
-    AVLTree readyTree; // a tree containing the nodes with parking lots that has at least one ready truck
-    AVLTree waitingTree; // a tree containing the nodes with parking lots that has at least one waiting truck
-    AVLTree unFullTree; // a tree containing the nodes with parking lots that has at least one remaining truck space
-    AVLTree tree; // a tree containing all the nodes and parking lots
+    OutputBuffer writer; // a buffer for outputting the operations' information.
+    LotIndex tree; // an index containing all the parking lots, searchable by their READY, WAITING and FREE properties
+    BitsetSuccessorIndex readyLots; // capacity constraints of the lots with ready trucks, null if searched in the tree
+    BitsetSuccessorIndex waitingLots; // capacity constraints of the lots with waiting trucks, null if searched in the tree
+    BitsetSuccessorIndex freeLots; // capacity constraints of the lots with truck space, null if searched in the tree
+    VersionedTruckCounts publishedCounts; // truck counts published for concurrent readers, null if not published
+
+    static final int DESTINATION_CACHE_SIZE = 256; // number of remaining capacities whose transfer destination is cached
+    TruckQueue loadBlock = new TruckQueue(Integer.MAX_VALUE); // trucks loaded from a parking lot at once
+    int[] destinationKeys = new int[DESTINATION_CACHE_SIZE]; // remaining capacity of each cached destination
+    ParkingLot[] destinations = new ParkingLot[DESTINATION_CACHE_SIZE]; // cached destination of each remaining capacity, null for none
+    boolean[] destinationValid = new boolean[DESTINATION_CACHE_SIZE]; // whether each cache slot holds a destination
+
+    /**
+     * Constructs a company object with an AVL tree and an output buffer.
+     *
+     * @param writer an output buffer object
+     */
+    public Company(OutputBuffer writer){
+        this(writer, LotIndex.ANY);
+    }
+
+    /**
+     * Constructs a company object with an AVL tree, an output buffer and bitset indexes for some of the searches.
+     * The searches for the selected properties use a BitsetSuccessorIndex instead of the tree.
+     *
+     * @param writer an output buffer object
+     * @param bitsetProperties the combination of LotIndex.READY, LotIndex.WAITING and LotIndex.FREE to search with bitsets
+     */
+    public Company(OutputBuffer writer, int bitsetProperties){
+        this(writer, new AVLTree(), bitsetProperties);
+    }
 
     /**
-     * Constructs a company object with 4 AVL trees and a file writer.
+     * Constructs a company object with the given lot index, an output buffer and bitset indexes for some of the searches.
      *
-     * @param writer a file writer object
+     * @param writer an output buffer object
+     * @param tree an empty index to keep the parking lots in
+     * @param bitsetProperties the combination of LotIndex.READY, LotIndex.WAITING and LotIndex.FREE to search with bitsets
      */
-    public Company(FileWriter writer){
+    public Company(OutputBuffer writer, LotIndex tree, int bitsetProperties){
         this.writer = writer;
-        this.readyTree = new AVLTree();
-        this.waitingTree = new AVLTree();
-        this.unFullTree = new AVLTree();
-        this.tree = new AVLTree();
+        this.tree = tree;
+        if ((bitsetProperties & LotIndex.READY) != 0) readyLots = new BitsetSuccessorIndex();
+        if ((bitsetProperties & LotIndex.WAITING) != 0) waitingLots = new BitsetSuccessorIndex();
+        if ((bitsetProperties & LotIndex.FREE) != 0) freeLots = new BitsetSuccessorIndex();
+    }
+
+    /**
+     * Starts publishing the truck counts for readers on other threads.
+     * From then on, every operation that changes the trucks of a parking lot publishes a new snapshot when it ends,
+     * so the count queries of the snapshots see the effect of whole operations only.
+     * The company itself is still used by a single thread.
+     *
+     * @return the published counts, whose snapshot method can be called from any thread
+     * @throws IllegalStateException if the company already has parking lots
+     */
+    public VersionedTruckCounts publishCounts(){
+        if (tree.size() > 0){
+            throw new IllegalStateException("Counts must be published before the parking lots are created");
+        }
+        if (publishedCounts == null){
+            publishedCounts = new VersionedTruckCounts();
+        }
+        return publishedCounts;
     }
 
     /**
@@ -32,8 +82,42 @@ public class Company {
      * @param pl a parking lot object
      */
     public void addParkingLot(ParkingLot pl){
-        unFullTree.insert(pl);
+        if (tree.contains(pl.getCapacityConstraint())){
+            return;
+        }
         tree.insert(pl);
+        refresh(pl);
+    }
+
+    /**
+     * Creates a batch of parking lots, skipping those whose capacity constraint already exists, like addParkingLot does.
+     * While the company has no parking lots, the batch is sorted and the tree is built from it in linear time,
+     * otherwise the parking lots are inserted one by one.
+     *
+     * @param lots the parking lots in the order they were created
+     */
+    public void addParkingLots(List<ParkingLot> lots){
+        if (tree.size() > 0){
+            for (ParkingLot pl : lots){
+                addParkingLot(pl);
+            }
+            return;
+        }
+
+        // Sort by capacity constraint. The sort is stable, so the first of the duplicates is kept.
+        ArrayList<ParkingLot> sorted = new ArrayList<ParkingLot>(lots);
+        sorted.sort(Comparator.comparingInt(ParkingLot::getCapacityConstraint));
+        ArrayList<ParkingLot> unique = new ArrayList<ParkingLot>(sorted.size());
+        for (ParkingLot pl : sorted){
+            if (unique.isEmpty() || unique.get(unique.size() - 1).getCapacityConstraint() != pl.getCapacityConstraint()){
+                unique.add(pl);
+            }
+        }
+
+        tree.build(unique);
+        for (ParkingLot pl : unique){
+            updateBitsets(pl);
+        }
     }
 
     /**
@@ -42,10 +126,99 @@ public class Company {
      * @param capacityConstraint the capacity constraint of the parking lot to be deleted
      */
     public void deleteParkingLot(int capacityConstraint){
-        unFullTree.delete(capacityConstraint);
-        waitingTree.delete(capacityConstraint);
-        readyTree.delete(capacityConstraint);
         tree.delete(capacityConstraint);
+        if (publishedCounts != null){
+            publishedCounts.set(capacityConstraint, 0);
+            publishedCounts.publish();
+        }
+        if (readyLots != null) readyLots.remove(capacityConstraint);
+        if (waitingLots != null) waitingLots.remove(capacityConstraint);
+        if (freeLots != null) freeLots.remove(capacityConstraint);
+    }
+
+    /**
+     * Updates the tree aggregates, the bitset indexes and the unpublished counts after the trucks of a parking lot changed.
+     *
+     * @param pl the parking lot that changed
+     */
+    private void refresh(ParkingLot pl){
+        tree.refresh(pl.getCapacityConstraint());
+        updateBitsets(pl);
+        if (publishedCounts != null){
+            publishedCounts.set(pl.getCapacityConstraint(), pl.getTruckCount());
+        }
+    }
+
+    /**
+     * Updates the bitset indexes from the current state of a parking lot.
+     *
+     * @param pl the parking lot
+     */
+    private void updateBitsets(ParkingLot pl){
+        int cc = pl.getCapacityConstraint();
+        int properties = LotIndex.properties(pl);
+        if (readyLots != null) readyLots.set(cc, (properties & LotIndex.READY) != 0);
+        if (waitingLots != null) waitingLots.set(cc, (properties & LotIndex.WAITING) != 0);
+        if (freeLots != null) freeLots.set(cc, (properties & LotIndex.FREE) != 0);
+    }
+
+    /**
+     * Gets the bitset index used for searching a property.
+     *
+     * @param property one of LotIndex.READY, LotIndex.WAITING and LotIndex.FREE
+     * @return the bitset index, or null if the property is searched in the tree
+     */
+    private BitsetSuccessorIndex bitset(int property){
+        if (property == LotIndex.READY) return readyLots;
+        if (property == LotIndex.WAITING) return waitingLots;
+        return freeLots;
+    }
+
+    /**
+     * Finds the parking lot with the smallest capacity constraint greater than or equal to the given one that has a property.
+     *
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property one of LotIndex.READY, LotIndex.WAITING and LotIndex.FREE
+     * @return the parking lot, or null if there is none
+     */
+    private ParkingLot findNextGreater(int capacityConstraint, int property){
+        BitsetSuccessorIndex bitset = bitset(property);
+        if (bitset == null){
+            return tree.findNextGreater(capacityConstraint, property);
+        }
+        int next = bitset.next(capacityConstraint);
+        return next < 0 ? null : tree.get(next);
+    }
+
+    /**
+     * Finds the parking lot with the smallest capacity constraint greater than the given parking lot's that has a property.
+     *
+     * @param pl the parking lot to start from
+     * @param property one of LotIndex.READY, LotIndex.WAITING and LotIndex.FREE
+     * @return the parking lot, or null if there is none
+     */
+    private ParkingLot findNextGreater(ParkingLot pl, int property){
+        int capacityConstraint = pl.getCapacityConstraint();
+        if (bitset(property) == null){
+            return tree.findNextGreater(pl, property);
+        }
+        return capacityConstraint == Integer.MAX_VALUE ? null : findNextGreater(capacityConstraint + 1, property);
+    }
+
+    /**
+     * Finds the parking lot with the greatest capacity constraint smaller than or equal to the given one that has a property.
+     *
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property one of LotIndex.READY, LotIndex.WAITING and LotIndex.FREE
+     * @return the parking lot, or null if there is none
+     */
+    private ParkingLot findNextSmaller(int capacityConstraint, int property){
+        BitsetSuccessorIndex bitset = bitset(property);
+        if (bitset == null){
+            return tree.findNextSmaller(capacityConstraint, property);
+        }
+        int prev = bitset.prev(capacityConstraint);
+        return prev < 0 ? null : tree.get(prev);
     }
 
     /**
@@ -57,7 +230,7 @@ public class Company {
      */
     public void ready(int capacityConstraint) throws IOException {
 
-        Node current = waitingTree.findNextGreater(capacityConstraint);
+        ParkingLot current = findNextGreater(capacityConstraint, LotIndex.WAITING);
 
         if (current == null) {
             // If there are no suitable parking lots, output -1.
@@ -65,18 +238,9 @@ public class Company {
             return;
         }
 
-        int id = current.pl.ready();
-        writer.write(String.format("%d %d\n", id, current.pl.getCapacityConstraint()));
-
-        // Insert the node into ready AVL tree if it was not already in there.
-        if (current.pl.getReadyTrucks() == 1){
-            readyTree.insert(current.pl);
-        }
-
-        // Delete the node from the waiting AVL tree if there are no remaining waiting trucks.
-        if (current.pl.getWaitingTrucks() == 0){
-            waitingTree.delete(current.pl.getCapacityConstraint());
-        }
+        int id = current.ready();
+        refresh(current);
+        writer.write(id).write(' ').write(current.getCapacityConstraint()).write('\n');
     }
 
     /**
@@ -87,23 +251,43 @@ public class Company {
      */
     public void count(int capacityConstraint) throws IOException {
 
-        Node current = tree.countHelper(capacityConstraint);
-        int truckCount = 0;
-
-        while (current != null)
-        {
+        // The tree keeps the truck sums of its subtrees, so a single descent is enough.
+        long truckCount = tree.countTrucksAbove(capacityConstraint);
 
-            truckCount += current.pl.getTruckCount();
-            current = tree.findNextGreater(current);
+        writer.write(truckCount).write('\n');
+    }
 
+    /**
+     * Counts and outputs the number of trucks in parking lots with a capacity constraint between the specified values, inclusive.
+     *
+     * @param low the lowest capacity constraint to be counted
+     * @param high the highest capacity constraint to be counted
+     * @throws IOException if an I/O error occurs while writing to the output file
+     */
+    public void countRange(int low, int high) throws IOException {
+
+        long truckCount = 0;
+
+        // Every lot above low - 1 minus every lot above high leaves exactly the lots in [low, high].
+        // low - 1 would wrap for the smallest int, so the lots from there on are every lot, counted as those above it plus itself.
+        if (low <= high){
+            long atLeastLow;
+            if (low == Integer.MIN_VALUE){
+                ParkingLot lowest = tree.get(low);
+                atLeastLow = tree.countTrucksAbove(low) + (lowest == null ? 0 : lowest.getTruckCount());
+            } else {
+                atLeastLow = tree.countTrucksAbove(low - 1);
+            }
+            truckCount = atLeastLow - tree.countTrucksAbove(high);
         }
 
-        writer.write(String.format("%d\n", truckCount));
+        writer.write(truckCount).write('\n');
     }
 
     /**
      * Loads a specified amount onto trucks in the ready section of parking lots that meet the minimum capacity constraint.
      * Outputs the truck IDs and the capacity constraint of the parking lots that trucks transferred to after loading.
+     * The trucks of a parking lot are loaded as a block, and the destinations of the transfers are cached during the operation.
      *
      * @param capacityConstraint the minimum capacity constraint required for loading
      * @param loadAmount the amount of load to be distributed among trucks
@@ -111,99 +295,96 @@ public class Company {
      */
     public void load(int capacityConstraint, int loadAmount) throws IOException {
 
-        // array lists to hold the output elements and nodes to be deleted after the load operation.
-        ArrayList<int[]> outputElements = new ArrayList<int[]>();
-        ArrayList<Integer> nodesToDelete = new ArrayList<Integer>();
+        // Whether a truck was loaded, the output elements are written as the trucks are transferred.
+        boolean loaded = false;
+        clearDestinations();
 
-        Node current = readyTree.findNextGreater(capacityConstraint);
+        ParkingLot pl = findNextGreater(capacityConstraint, LotIndex.READY);
 
-        while (loadAmount > 0 && current != null)
+        while (loadAmount > 0 && pl != null)
         {
-
-            while (loadAmount > 0 && current.pl.getReadyTrucks() > 0){
-
-                int load = Math.min(loadAmount, current.pl.getCapacityConstraint());
-                loadAmount -= load;
-                Truck t = current.pl.load(load);
-
-                // Insert the node into unfull AVL tree if it was not already in there.
-                if (unFullTree.hashTable[current.pl.getCapacityConstraint()] == null){
-                    unFullTree.insert(current.pl);
-                }
-
-                int newCapacityConstraint = transferTruck(t);
-                outputElements.add(new int[]{t.getID(), newCapacityConstraint});
-
+            // Load every truck this parking lot can serve at once.
+            boolean wasFree = pl.getTruckCount() < pl.getTruckLimit();
+            loadBlock.clear();
+            int count = pl.load(loadBlock, loadAmount);
+            loadAmount -= (int) Math.min(loadAmount, (long) count * pl.getCapacityConstraint());
+            refresh(pl);
+
+            // A parking lot that gets space back can be a closer destination than the cached ones.
+            if (!wasFree){
+                clearDestinations();
             }
 
-            // If there are no ready trucks left in the parking lot, add the capacity to the list for deletion.
-            if (current.pl.getReadyTrucks() == 0){
-                nodesToDelete.add(current.pl.getCapacityConstraint());
+            for (int i = 0; i < count; i++){
+                int id = loadBlock.getID(i);
+                int newCapacityConstraint = transferTruck(id, loadBlock.getMaxCapacity(i), loadBlock.getLoad(i));
+                if (loaded){
+                    writer.write(" - ");
+                }
+                writer.write(id).write(' ').write(newCapacityConstraint);
+                loaded = true;
             }
 
-            current = readyTree.findNextGreater(current);
+            pl = findNextGreater(pl, LotIndex.READY);
         }
 
-        // cc stands for capacity constraint
-        for (int cc : nodesToDelete){
-            readyTree.delete(cc);
+        if (publishedCounts != null){
+            publishedCounts.publish();
         }
 
         // Output the requested information.
-        int size = outputElements.size();
-        if (size == 0){ // Handle the case if we did not load a truck
+        if (!loaded){ // Handle the case if we did not load a truck
             writer.write("-1\n");
             return;
         }
-        for(int i = 0; i < size; i++) {
-
-            int[] outputElement = outputElements.get(i);
-            int info1 = outputElement[0];
-            int info2 = outputElement[1];
-
-            // Output a different string when it comes to the last output element
-            if (i == size - 1) {
-                writer.write(String.format("%d %d\n", info1, info2));
-            }
-            else{
-                writer.write(String.format("%d %d - ", info1, info2));
-            }
-        }
+        writer.write('\n');
     }
 
     /**
      * Transfers a truck to a new parking lot based on its remaining capacity.
      * This method is a dependency for load method.
+     * The destination of a remaining capacity is cached, which stays valid while the destination has space,
+     * as long as no other parking lot gets space back.
      *
-     * @param t the truck to transfer
+     * @param id the ID of the truck to transfer
+     * @param maxCapacity the maximum capacity of the truck
+     * @param load the current load of the truck
      * @return the capacity constraint of the parking lot, to which the given truck is transferred
      */
-    private int transferTruck(Truck t) throws IOException {
+    private int transferTruck(int id, int maxCapacity, int load) throws IOException {
 
-        int capacityConstraint = t.getMaxCapacity() - t.getLoad();
-        Node current = unFullTree.findNextSmaller(capacityConstraint);
+        int capacityConstraint = maxCapacity - load;
+        int slot = capacityConstraint & (DESTINATION_CACHE_SIZE - 1);
+
+        ParkingLot current;
+        if (destinationKeys[slot] == capacityConstraint && destinationValid[slot]
+                && (destinations[slot] == null || destinations[slot].getTruckCount() < destinations[slot].getTruckLimit())){
+            current = destinations[slot];
+        }
+        else{
+            current = findNextSmaller(capacityConstraint, LotIndex.FREE);
+            destinationKeys[slot] = capacityConstraint;
+            destinations[slot] = current;
+            destinationValid[slot] = true;
+        }
 
         // If we weren't able to transfer the truck, return -1.
         if (current == null) {
             return -1;
         }
 
-        current.pl.acceptTruck(t);
-
-        // Hold the capacity constraint of the current node before deletion to prevent potential bugs.
-        int newCapacityConstraint = current.pl.getCapacityConstraint();
+        current.acceptTruck(id, maxCapacity, load);
+        refresh(current);
 
-        // Insert the node into waiting AVL tree if it was not already in there.
-        if  (current.pl.getWaitingTrucks() == 1){
-            waitingTree.insert(current.pl);
-        }
-
-        // Delete the node from the unfull AVL tree if the parking lot reached its truck limit.
-        if (current.pl.getTruckLimit() == current.pl.getTruckCount()){
-            unFullTree.delete(current.pl.getCapacityConstraint());
-        }
+        return current.getCapacityConstraint();
+    }
 
-        return newCapacityConstraint;
+    /**
+     * Forgets the cached transfer destinations.
+     */
+    private void clearDestinations(){
+        Arrays.fill(destinationValid, false);
+        Arrays.fill(destinations, null);
     }
 
     /**
@@ -216,7 +397,7 @@ public class Company {
      */
     public void addTruck(int ID, int maxCapacity) throws IOException {
 
-        Node current = unFullTree.findNextSmaller(maxCapacity);
+        ParkingLot current = findNextSmaller(maxCapacity, LotIndex.FREE);
 
         if (current == null) {
             // If there are no suitable parking lots, output -1.
@@ -224,17 +405,11 @@ public class Company {
             return;
         }
 
-        current.pl.acceptTruck(new Truck(ID, maxCapacity));
-        writer.write(String.format("%d\n", current.pl.getCapacityConstraint()));
-
-        // Insert the node into waiting AVL tree if it was not already in there.
-        if  (current.pl.getWaitingTrucks() == 1){
-            waitingTree.insert(current.pl);
-        }
-
-        // Delete the node from the unfull AVL tree if the parking lot reached its truck limit.
-        if (current.pl.getTruckLimit() == current.pl.getTruckCount()){
-            unFullTree.delete(current.pl.getCapacityConstraint());
+        current.acceptTruck(ID, maxCapacity, 0);
+        refresh(current);
+        if (publishedCounts != null){
+            publishedCounts.publish();
         }
+        writer.write(current.getCapacityConstraint()).write('\n');
     }
 }
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test of the concurrent count queries.
+ * A writer thread runs random operations on a company that publishes its truck counts, while reader threads query
+ * the latest snapshot in a loop. After every published version the writer records the counts of a fixed set of
+ * queries, computed from the lot index of the company, and then announces the version through a volatile counter.
+ * Every read must return a version no older than the one announced before the read started, and no older than the
+ * previous read of the same reader, and after the writer finishes, every reader must see the final version.
+ * At the end, every kept read is checked against the recorded counts of the version it read.
+ * Together this checks that each read returns the state after a whole operation that completed no earlier than the
+ * read started, which is what linearizable count queries need.
+ * Usage: java ConcurrentCountStress [operations] [readers] [--tree=...] [--bitset[=...]]
+ */
+public class ConcurrentCountStress {
+
+    private static final int QUERIES = 64; // Number of distinct count queries
+    private static final int READS_KEPT = 1 << 20; // Number of reads each reader keeps for the check
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int operations = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : 2000000;
+        int readers = args.length > 1 && !args[1].startsWith("--") ? Integer.parseInt(args[1]) : 3;
+        int capacity = 1 << 16;
+
+        // The queries: counts above a bound, then range counts from the same bounds.
+        SplittableRandom random = new SplittableRandom(42);
+        int[] lows = new int[QUERIES];
+        int[] highs = new int[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            lows[q] = random.nextInt(capacity);
+            highs[q] = lows[q] + random.nextInt(capacity / 4);
+        }
+
+        LotIndex tree = Main.createLotIndex(args);
+        Company company = new Company(new OutputBuffer(OutputStream.nullOutputStream()), tree, Main.parseBitsetProperties(args));
+        VersionedTruckCounts counts = company.publishCounts();
+
+        // Expected results of every query, by version. Version 0 has no trucks.
+        ArrayList<long[]> expected = new ArrayList<long[]>();
+        expected.add(new long[2 * QUERIES]);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong announced = new AtomicLong(); // Last version the writer finished recording
+        long[] finalVersions = new long[readers];
+        long[][] readVersions = new long[readers][READS_KEPT];
+        long[][] readCounts = new long[readers][READS_KEPT];
+        int[][] readQueries = new int[readers][READS_KEPT];
+        long[] totalReads = new long[readers];
+        String[] failures = new String[readers];
+
+        Thread[] threads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            final int reader = r;
+            threads[r] = new Thread(() -> {
+                SplittableRandom local = new SplittableRandom(reader);
+                long lastVersion = -1;
+                long reads = 0;
+                while (!done.get()) {
+                    long floor = announced.get();
+                    CountSnapshot snapshot = counts.snapshot();
+                    if (snapshot.version() < floor) {
+                        failures[reader] = "read version " + snapshot.version() + " after version " + floor + " was published";
+                        return;
+                    }
+                    if (snapshot.version() < lastVersion) {
+                        failures[reader] = "version went back from " + lastVersion + " to " + snapshot.version();
+                        return;
+                    }
+                    lastVersion = snapshot.version();
+
+                    int q = local.nextInt(2 * QUERIES);
+                    long count = q < QUERIES ? snapshot.countTrucksAbove(lows[q]) : snapshot.countRange(lows[q - QUERIES], highs[q - QUERIES]);
+                    int slot = (int) (reads++ % READS_KEPT);
+                    readVersions[reader][slot] = snapshot.version();
+                    readQueries[reader][slot] = q;
+                    readCounts[reader][slot] = count;
+                }
+                totalReads[reader] = reads;
+                finalVersions[reader] = counts.snapshot().version();
+            }, "count-reader-" + r);
+            threads[r].start();
+        }
+
+        // The writer: parking lots first, then a random mix of the operations.
+        long start = System.nanoTime();
+        ArrayList<ParkingLot> lots = new ArrayList<ParkingLot>();
+        for (int i = 0; i < 4096; i++) {
+            lots.add(new ParkingLot(random.nextInt(capacity), 1 + random.nextInt(8)));
+        }
+        company.addParkingLots(lots);
+
+        for (int i = 0; i < operations; i++) {
+            int operation = random.nextInt(100);
+            int cc = random.nextInt(capacity);
+            if (operation < 45) company.addTruck(i, cc);
+            else if (operation < 70) company.ready(cc);
+            else if (operation < 95) company.load(cc, random.nextInt(4 * capacity));
+            else if (operation < 98) company.deleteParkingLot(cc);
+            else company.addParkingLot(new ParkingLot(cc, 1 + random.nextInt(8)));
+
+            // Record the counts of a newly published version from the lot index.
+            if (counts.publishedVersion() == expected.size()) {
+                long[] results = new long[2 * QUERIES];
+                for (int q = 0; q < QUERIES; q++) {
+                    results[q] = tree.countTrucksAbove(lows[q]);
+                    results[QUERIES + q] = tree.countTrucksAbove(lows[q] - 1) - tree.countTrucksAbove(highs[q]);
+                }
+                expected.add(results);
+                announced.set(expected.size() - 1);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        done.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Check the kept reads of every reader.
+        long checked = 0;
+        long mismatches = 0;
+        for (int r = 0; r < readers; r++) {
+            if (failures[r] == null && finalVersions[r] != expected.size() - 1) {
+                failures[r] = "saw version " + finalVersions[r] + " after the writer finished version " + (expected.size() - 1);
+            }
+            if (failures[r] != null) {
+                System.out.println("reader " + r + ": " + failures[r]);
+                mismatches++;
+                continue;
+            }
+            long kept = Math.min(totalReads[r], READS_KEPT);
+            for (int i = 0; i < kept; i++) {
+                long[] results = expected.get((int) readVersions[r][i]);
+                int q = readQueries[r][i];
+                long want = results[q];
+                if (readCounts[r][i] != want) {
+                    if (mismatches++ < 10) {
+                        System.out.println("reader " + r + ": query " + q + " at version " + readVersions[r][i] + " read " + readCounts[r][i] + " instead of " + want);
+                    }
+                }
+                checked++;
+            }
+        }
+
+        long reads = 0;
+        for (long count : totalReads) reads += count;
+        System.out.printf("operations: %d, versions: %d, writer millis: %.2f%n", operations, expected.size() - 1, nanos / 1e6);
+        System.out.printf("reads: %d, checked: %d, mismatches: %d%n", reads, checked, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
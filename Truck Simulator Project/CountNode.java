@@ -0,0 +1,27 @@
+/**
+ * A class representing a node of the binary trie behind VersionedTruckCounts.
+ * The node at depth d covers the capacity constraints sharing their first d bits, and a leaf at depth 32 holds the
+ * trucks of a single parking lot. Nodes of published versions are never modified, so they are shared between versions.
+ */
+public class CountNode {
+
+    CountNode left; // child covering the lower half of the range, null if it has no trucks
+    CountNode right; // child covering the upper half of the range, null if it has no trucks
+    long sum; // total number of trucks in the range of this node
+    final long version; // version this node was created in, only the unpublished version modifies its nodes
+
+    /**
+     * Constructs a copy of a node for a new version, or an empty node if there is nothing to copy.
+     *
+     * @param other the node to copy, or null
+     * @param version the version the node is created in
+     */
+    public CountNode(CountNode other, long version) {
+        if (other != null) {
+            this.left = other.left;
+            this.right = other.right;
+            this.sum = other.sum;
+        }
+        this.version = version;
+    }
+}
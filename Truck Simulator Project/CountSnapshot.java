@@ -0,0 +1,68 @@
+/**
+ * A published version of the truck counts of a company.
+ * A snapshot never changes, so any number of threads can query it while the company moves on to later versions.
+ */
+public class CountSnapshot {
+
+    private final CountNode root; // Root of the trie, null if there are no trucks
+    private final long version; // Number of versions published before and including this one
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param root the root of the trie
+     * @param version the version of the snapshot
+     */
+    CountSnapshot(CountNode root, long version) {
+        this.root = root;
+        this.version = version;
+    }
+
+    /**
+     * Gets the version of the snapshot. Later snapshots have greater versions.
+     *
+     * @return the version
+     */
+    public long version(){
+        return version;
+    }
+
+    /**
+     * Counts the trucks in the parking lots with a capacity constraint greater than the given value.
+     *
+     * @param capacityConstraint the exclusive lower bound of the capacity constraints
+     * @return the number of trucks in those parking lots
+     */
+    public long countTrucksAbove(int capacityConstraint){
+        int key = VersionedTruckCounts.key(capacityConstraint);
+        CountNode node = root;
+        long count = 0;
+
+        // Going left at a bit leaves the whole right child above the bound.
+        for (int bit = 31; node != null && bit >= 0; bit--){
+            if ((key >>> bit & 1) == 0){
+                count += node.right == null ? 0 : node.right.sum;
+                node = node.left;
+            }
+            else{
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the trucks in the parking lots with a capacity constraint between two values.
+     *
+     * @param low the inclusive lower bound of the capacity constraints
+     * @param high the inclusive upper bound of the capacity constraints
+     * @return the number of trucks in those parking lots, 0 if low is greater than high
+     */
+    public long countRange(int low, int high){
+        if (low > high){
+            return 0;
+        }
+        long atLeastLow = low == Integer.MIN_VALUE ? (root == null ? 0 : root.sum) : countTrucksAbove(low - 1);
+        return atLeastLow - countTrucksAbove(high);
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * A worker thread running the companies of some depots.
+ * The worker takes the commands of its depots from its own ring, so every company is only ever touched by one thread,
+ * and writes the output of each depot into a separate in-memory buffer.
+ * Depots are numbered densely in the order they first appear, and the worker with index w of n workers runs the depots
+ * w, w + n, w + 2n and so on.
+ */
+public class DepotWorker implements Runnable {
+
+    private final CommandRing ring; // Commands of the depots of this worker
+    private final int workers; // Number of workers sharing the depots
+    private final String[] options; // Command line options selecting the lot index and the bitset searches
+    private OperationDispatcher[] dispatchers; // Dispatcher of each depot, by depot number divided by the number of workers
+    private OutputBuffer[] writers; // Output buffer of each depot
+    private ByteArrayOutputStream[] outputs; // Output of each depot
+    private Throwable failure; // First error thrown by a company, null if none
+
+    /**
+     * Constructs a worker.
+     *
+     * @param ring the ring to take the commands from
+     * @param workers the number of workers sharing the depots
+     * @param options the command line options selecting the lot index and the bitset searches of the companies
+     */
+    public DepotWorker(CommandRing ring, int workers, String[] options) {
+        this.ring = ring;
+        this.workers = workers;
+        this.options = options;
+        this.dispatchers = new OperationDispatcher[16];
+        this.writers = new OutputBuffer[16];
+        this.outputs = new ByteArrayOutputStream[16];
+    }
+
+    /**
+     * Performs the commands of the ring until a command with the operation CommandReader.END arrives.
+     * A command is the depot number, the operation and its two integers. After an error, the remaining commands
+     * are taken but ignored, so the producer never waits on a full ring.
+     */
+    @Override
+    public void run() {
+        int[] command = new int[CommandRing.WIDTH];
+        while (true) {
+            ring.take(command);
+            if (command[1] == CommandReader.END) {
+                break;
+            }
+            if (failure != null) {
+                continue;
+            }
+
+            try {
+                dispatcher(command[0] / workers).execute(command[1], command[2], command[3]);
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        try {
+            for (int i = 0; i < dispatchers.length; i++) {
+                if (dispatchers[i] != null) {
+                    dispatchers[i].flush();
+                    writers[i].close();
+                }
+            }
+        } catch (Throwable e) {
+            if (failure == null) failure = e;
+        }
+    }
+
+    /**
+     * Gets the dispatcher of a depot, creating its company on its first command.
+     *
+     * @param local the depot number divided by the number of workers
+     * @return the dispatcher of the depot
+     */
+    private OperationDispatcher dispatcher(int local) {
+        if (local >= dispatchers.length) {
+            int length = Math.max(local + 1, dispatchers.length * 2);
+            dispatchers = Arrays.copyOf(dispatchers, length);
+            writers = Arrays.copyOf(writers, length);
+            outputs = Arrays.copyOf(outputs, length);
+        }
+
+        if (dispatchers[local] == null) {
+            outputs[local] = new ByteArrayOutputStream();
+            writers[local] = new OutputBuffer(outputs[local]);
+            Company company = new Company(writers[local], Main.createLotIndex(options), Main.parseBitsetProperties(options));
+            dispatchers[local] = new OperationDispatcher(company);
+        }
+        return dispatchers[local];
+    }
+
+    /**
+     * Gets the output of a depot. Only valid after the worker has finished.
+     *
+     * @param depot the depot number
+     * @return the output of the depot
+     */
+    public ByteArrayOutputStream output(int depot) {
+        return outputs[depot / workers];
+    }
+
+    /**
+     * Gets the first error the worker ran into. Only valid after the worker has finished.
+     *
+     * @return the error, or null if there was none
+     */
+    public Throwable failure() {
+        return failure;
+    }
+}
@@ -0,0 +1,127 @@
+import java.util.List;
+
+/**
+ * An ordered index of parking lots by capacity constraint.
+ * Besides exact lookups, it finds the closest parking lot above or below a capacity constraint that has a property,
+ * and counts the trucks above a capacity constraint.
+ * The index reads the state of its parking lots, so it must be refreshed whenever the trucks of a parking lot change.
+ */
+public interface LotIndex {
+
+    int ANY = 0; // Property of every parking lot
+    int READY = 1; // Property of parking lots that have at least one ready truck
+    int WAITING = 2; // Property of parking lots that have at least one waiting truck
+    int FREE = 4; // Property of parking lots that have at least one remaining truck space
+
+    /**
+     * Inserts a parking lot if a parking lot with the same capacity constraint does not already exist.
+     *
+     * @param pl the parking lot to insert
+     */
+    void insert(ParkingLot pl);
+
+    /**
+     * Fills an empty index with parking lots in linear time.
+     *
+     * @param sorted the parking lots in increasing order of capacity constraint, without duplicates
+     * @throws IllegalStateException if the index is not empty
+     */
+    void build(List<ParkingLot> sorted);
+
+    /**
+     * Gets the number of parking lots in the index.
+     *
+     * @return the size of the index
+     */
+    int size();
+
+    /**
+     * Deletes the parking lot with the given capacity constraint if exists.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot to delete
+     */
+    void delete(int capacityConstraint);
+
+    /**
+     * Gets the parking lot with the given capacity constraint.
+     *
+     * @param capacityConstraint the capacity constraint to look up
+     * @return the parking lot, or null if there is no such parking lot
+     */
+    ParkingLot get(int capacityConstraint);
+
+    /**
+     * Checks whether the index contains a parking lot with the given capacity constraint.
+     *
+     * @param capacityConstraint the capacity constraint to look up
+     * @return true if the parking lot is in the index, false otherwise
+     */
+    boolean contains(int capacityConstraint);
+
+    /**
+     * Updates the index after the trucks of a parking lot changed.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot that changed
+     */
+    void refresh(int capacityConstraint);
+
+    /**
+     * Finds the parking lot with the smallest capacity constraint greater than or equal to the given one that has a property.
+     *
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property the required property, or ANY
+     * @return the parking lot, or null if there is none
+     */
+    ParkingLot findNextGreater(int capacityConstraint, int property);
+
+    /**
+     * Finds the parking lot with the smallest capacity constraint greater than the given parking lot's that has a property.
+     *
+     * @param pl the parking lot to start from
+     * @param property the required property, or ANY
+     * @return the parking lot, or null if there is none
+     */
+    ParkingLot findNextGreater(ParkingLot pl, int property);
+
+    /**
+     * Finds the parking lot with the greatest capacity constraint smaller than or equal to the given one that has a property.
+     *
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property the required property, or ANY
+     * @return the parking lot, or null if there is none
+     */
+    ParkingLot findNextSmaller(int capacityConstraint, int property);
+
+    /**
+     * Counts the trucks in the parking lots with a capacity constraint greater than the given value.
+     *
+     * @param capacityConstraint the exclusive lower bound of the capacity constraints
+     * @return the number of trucks in those parking lots
+     */
+    long countTrucksAbove(int capacityConstraint);
+
+    /**
+     * Computes the properties of a parking lot from its current state.
+     *
+     * @param pl the parking lot
+     * @return the combination of READY, WAITING and FREE that holds for the parking lot
+     */
+    static int properties(ParkingLot pl){
+        int properties = 0;
+        if (pl.getReadyTrucks() > 0) properties |= READY;
+        if (pl.getWaitingTrucks() > 0) properties |= WAITING;
+        if (pl.getTruckCount() < pl.getTruckLimit()) properties |= FREE;
+        return properties;
+    }
+
+    /**
+     * Checks whether a parking lot has all the given properties.
+     *
+     * @param pl the parking lot
+     * @param property the required properties, or ANY
+     * @return true if the parking lot has the properties, false otherwise
+     */
+    static boolean hasProperty(ParkingLot pl, int property){
+        return (properties(pl) & property) == property;
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the lot indexes by replaying the same commands on a company backed by each of them.
+ * The commands come from the given input files and from synthetic depots of growing size.
+ * Every input is read into memory first and the output is discarded, so only the simulation is measured.
+ * The TreeMap baseline counts trucks one parking lot at a time, so it only runs on the smallest synthetic depot.
+ * Usage: java LotIndexBenchmark [rounds] [input files...]
+ */
+public class LotIndexBenchmark {
+
+    private static final String[] TREES = {"avl", "pooled", "btree", "treemap"}; // Values of the --tree option to compare
+    private static final String[] AUGMENTED_TREES = {"avl", "pooled", "btree"}; // Trees with subtree aggregates
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        System.out.println("workload,tree,round,millis");
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 1; i < args.length; i++) {
+                byte[] input = Files.readAllBytes(Paths.get(args[i]));
+                compare(Paths.get(args[i]).getFileName().toString(), input, round, TREES);
+            }
+            for (int lots : new int[] {1 << 10, 1 << 14, 1 << 18}) {
+                compare("depot-" + lots, depot(lots, 1 << 20, lots), round, lots <= 1 << 10 ? TREES : AUGMENTED_TREES);
+            }
+        }
+    }
+
+    /**
+     * Replays an input on every lot index and checks that they all produce the same output.
+     *
+     * @param workload the name of the input
+     * @param input the commands
+     * @param round the number of the round
+     * @param trees the values of the --tree option to compare
+     * @throws IOException if the commands cannot be processed
+     */
+    private static void compare(String workload, byte[] input, int round, String[] trees) throws IOException {
+        byte[] expected = null;
+        for (String tree : trees) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            run(tree, new ByteArrayInputStream(input), output);
+            long nanos = System.nanoTime() - start;
+
+            if (expected == null) {
+                expected = output.toByteArray();
+            } else if (!Arrays.equals(expected, output.toByteArray())) {
+                throw new IllegalStateException(tree + " disagrees with " + trees[0] + " on " + workload);
+            }
+            System.out.printf("%s,%s,%d,%.2f%n", workload, tree, round, nanos / 1e6);
+        }
+    }
+
+    /**
+     * Processes commands on a company backed by a lot index.
+     *
+     * @param tree the value of the --tree option
+     * @param in the commands
+     * @param out the stream to write the output to
+     * @throws IOException if the commands cannot be processed
+     */
+    private static void run(String tree, InputStream in, OutputStream out) throws IOException {
+        try (OutputBuffer writer = new OutputBuffer(out)) {
+            Main.process(in, new Company(writer, Main.createLotIndex(new String[] {"--tree=" + tree}), LotIndex.ANY));
+        }
+    }
+
+    /**
+     * Generates the commands of a synthetic depot: parking lots are created up front,
+     * followed by a random mix of the other operations over the capacity constraints of the parking lots.
+     *
+     * @param lots the number of parking lots
+     * @param operations the number of operations after the parking lots are created
+     * @param seed the seed of the random mix
+     * @return the commands
+     */
+    private static byte[] depot(int lots, int operations, long seed) {
+        Random random = new Random(seed);
+        int domain = lots * 4;
+        StringBuilder commands = new StringBuilder();
+        for (int i = 0; i < lots; i++) {
+            commands.append("create_parking_lot ").append(random.nextInt(domain)).append(' ').append(1 + random.nextInt(8)).append('\n');
+        }
+
+        int truckID = 0;
+        for (int i = 0; i < operations; i++) {
+            int cc = random.nextInt(domain);
+            int operation = random.nextInt(100);
+            if (operation < 40) {
+                commands.append("add_truck ").append(truckID++).append(' ').append(cc).append('\n');
+            } else if (operation < 60) {
+                commands.append("ready ").append(cc).append('\n');
+            } else if (operation < 80) {
+                commands.append("load ").append(cc).append(' ').append(random.nextInt(domain * 4)).append('\n');
+            } else if (operation < 95) {
+                commands.append("count ").append(cc).append('\n');
+            } else if (operation < 98) {
+                commands.append("delete_parking_lot ").append(cc).append('\n');
+            } else {
+                commands.append("create_parking_lot ").append(cc).append(' ').append(1 + random.nextInt(8)).append('\n');
+            }
+        }
+        return commands.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
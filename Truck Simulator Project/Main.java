@@ -1,8 +1,7 @@
-import java.io.File;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Truck Fleet Management Simulator
@@ -11,57 +10,107 @@ import java.io.IOException;
  * @since Date: 25.10.2024
  */
 public class Main {
+    /**
+     * Runs the simulator.
+     * Usage: java Main [input file] [output file] [--bitset[=ready,waiting,free]] [--tree=avl|pooled|btree|treemap]
+     * The input and output files default to "type5-large.txt" and "output.txt".
+     *
+     * @param args the command line arguments
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
     public static void main(String[] args) throws IOException {
 
-        // Initialize a file handle and a scanner for the input, a file writer for the output.
-        File fh = new File("type5-large.txt");
-        Scanner scanner = new Scanner(fh);
-        FileWriter writer = new FileWriter("output.txt");
-        Company company = new Company(writer);
-
-        // Read the input file.
-        while (scanner.hasNextLine()) {
-            try {
-                String operation = scanner.next();
+        // The arguments that are not options are the input and output paths.
+        String inputPath = "type5-large.txt";
+        String outputPath = "output.txt";
+        int paths = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                continue;
+            }
+            if (paths == 0) inputPath = arg;
+            else if (paths == 1) outputPath = arg;
+            paths++;
+        }
 
-                // Act accordingly to the operation.
-                if (operation.equals("create_parking_lot")) {
+        // Initialize an input stream for the input, an output buffer for the output.
+        try (InputStream in = new FileInputStream(inputPath);
+             OutputBuffer writer = new OutputBuffer(new FileOutputStream(outputPath))) {
+            Company company = new Company(writer, createLotIndex(args), parseBitsetProperties(args));
+            process(in, company);
+        }
+    }
 
-                    int capacityConstraint = scanner.nextInt();
-                    int truckLimit = scanner.nextInt();
-                    company.addParkingLot(new ParkingLot(capacityConstraint, truckLimit));
-                } else if (operation.equals("delete_parking_lot")) {
+    /**
+     * Creates the lot index selected by the --tree option, the object based AVL tree by default.
+     *
+     * @param args the command line arguments
+     * @return an empty lot index
+     */
+    public static LotIndex createLotIndex(String[] args){
+        String tree = "avl";
+        for (String arg : args) {
+            if (arg.startsWith("--tree=")) {
+                tree = arg.substring("--tree=".length());
+            }
+        }
 
-                    int capacityConstraint = scanner.nextInt();
-                    company.deleteParkingLot(capacityConstraint);
-                } else if (operation.equals("add_truck")) {
+        if (tree.equals("avl")) return new AVLTree();
+        if (tree.equals("pooled")) return new PooledAVLTree();
+        if (tree.equals("btree")) return new BPlusTree();
+        if (tree.equals("treemap")) return new TreeMapLotIndex();
+        throw new IllegalArgumentException("Unknown tree: " + tree);
+    }
 
-                    int ID = scanner.nextInt();
-                    int maxCapacity = scanner.nextInt();
-                    company.addTruck(ID, maxCapacity);
-                } else if (operation.equals("ready")) {
+    /**
+     * Parses the --bitset option, which selects the searches that use bitset indexes instead of the tree.
+     * "--bitset" selects every search, "--bitset=ready,waiting,free" selects some of them.
+     *
+     * @param args the command line arguments
+     * @return the combination of LotIndex.READY, LotIndex.WAITING and LotIndex.FREE to search with bitsets
+     */
+    public static int parseBitsetProperties(String[] args){
+        int properties = LotIndex.ANY;
+        for (String arg : args) {
+            if (arg.equals("--bitset")) {
+                properties = LotIndex.READY | LotIndex.WAITING | LotIndex.FREE;
+            } else if (arg.startsWith("--bitset=")) {
+                for (String name : arg.substring("--bitset=".length()).split(",")) {
+                    if (name.equals("ready")) properties |= LotIndex.READY;
+                    else if (name.equals("waiting")) properties |= LotIndex.WAITING;
+                    else if (name.equals("free")) properties |= LotIndex.FREE;
+                    else throw new IllegalArgumentException("Unknown bitset search: " + name);
+                }
+            }
+        }
+        return properties;
+    }
 
-                    int capacityConstraint = scanner.nextInt();
-                    company.ready(capacityConstraint);
-                } else if (operation.equals("load")) {
+    /**
+     * Reads the operations from an input stream and performs them on a company.
+     * An operation with a missing or malformed integer is skipped, and reading continues from the offending token.
+     *
+     * @param in the stream of the input
+     * @param company the company to perform the operations on
+     * @throws IOException if an I/O error occurs while reading the input or writing the output
+     */
+    public static void process(InputStream in, Company company) throws IOException {
 
-                    int capacityConstraint = scanner.nextInt();
-                    int loadAmount = scanner.nextInt();
-                    company.load(capacityConstraint, loadAmount);
-                } else if (operation.equals("count")) {
+        CommandReader reader = new CommandReader(in);
+        OperationDispatcher dispatcher = new OperationDispatcher(company);
+        int[] values = new int[2];
+        int operation;
 
-                    int capacityConstraint = scanner.nextInt();
-                    company.count(capacityConstraint);
-                }
-            }
+        // Read the input file.
+        while ((operation = reader.nextOperation()) != CommandReader.END) {
 
-            catch (NoSuchElementException ignored){
+            int arity = CommandReader.arity(operation);
+            if (reader.readInts(values, arity) < arity) {
+                continue;
             }
-
+            dispatcher.execute(operation, values[0], values[1]);
         }
 
-        writer.close();
+        dispatcher.flush();
     }
 }
-
-
@@ -0,0 +1,143 @@
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the commands of many independent depots, each depot with its own company.
+ * Every line of the input is a command tagged with a depot ID before the operation keyword, e.g. "7 add_truck 12 300".
+ * The reading thread routes each command to the worker of its depot through the worker's single-producer
+ * single-consumer ring, and every worker runs its depots on its own thread, so independent depots run in parallel.
+ * A depot's commands are performed in input order, so the output does not depend on the scheduling of the threads:
+ * the outputs are merged in increasing order of depot ID, each one after a line "depot <ID>".
+ *
+ * Usage: java MultiDepotRunner [input file] [output file] [--workers=n] [--timing] [--tree=...] [--bitset[=...]]
+ * The input and output files default to "depots.txt" and "output.txt", and the workers to the number of processors.
+ * --timing prints the elapsed time to the standard error.
+ */
+public class MultiDepotRunner {
+
+    private static final int RING_CAPACITY = 1 << 14; // Number of commands a ring between the reader and a worker holds
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        // The arguments that are not options are the input and output paths.
+        String inputPath = "depots.txt";
+        String outputPath = "output.txt";
+        int workers = Runtime.getRuntime().availableProcessors();
+        boolean timing = false;
+        int paths = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--workers=")) {
+                workers = Integer.parseInt(arg.substring("--workers=".length()));
+                continue;
+            }
+            if (arg.equals("--timing")) {
+                timing = true;
+                continue;
+            }
+            if (arg.startsWith("--")) {
+                continue;
+            }
+            if (paths == 0) inputPath = arg;
+            else if (paths == 1) outputPath = arg;
+            paths++;
+        }
+
+        try (InputStream in = new FileInputStream(inputPath);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(outputPath), 1 << 16)) {
+            long start = System.nanoTime();
+            run(in, out, workers, args);
+            if (timing) System.err.printf("%d workers: %.2f ms%n", workers, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    /**
+     * Reads tagged commands, performs them on the companies of their depots and writes the merged output.
+     * Each line is one command. A line with a missing or malformed depot ID, an unknown keyword or too few integers
+     * is skipped as a whole, so a short command never takes the depot ID of the next line, and extra tokens at the end
+     * of a line are ignored.
+     *
+     * @param in the stream of the input
+     * @param out the stream to write the merged output to
+     * @param workers the number of worker threads
+     * @param options the command line options selecting the lot index and the bitset searches of the companies
+     * @throws IOException if the input cannot be read, the output cannot be written, or a company fails
+     * @throws InterruptedException if the thread is interrupted while waiting for the workers
+     */
+    public static void run(InputStream in, OutputStream out, int workers, String[] options) throws IOException, InterruptedException {
+        // Fail early on bad options rather than in the workers.
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed: " + workers);
+        }
+        Main.createLotIndex(options);
+
+        CommandRing[] rings = new CommandRing[workers];
+        DepotWorker[] depotWorkers = new DepotWorker[workers];
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            rings[w] = new CommandRing(RING_CAPACITY);
+            depotWorkers[w] = new DepotWorker(rings[w], workers, options);
+            threads[w] = new Thread(depotWorkers[w], "depot-worker-" + w);
+            threads[w].start();
+        }
+
+        // Number the depots densely in the order they first appear.
+        HashMap<Integer, Integer> depots = new HashMap<Integer, Integer>();
+        try {
+            CommandReader reader = new CommandReader(in);
+            int[] depot = new int[1];
+            int[] values = new int[2];
+            int operation;
+
+            while (true) {
+                if (reader.readInts(depot, 1) < 1 || reader.endOfLine()) {
+                    // Skip the line without a depot ID or without an operation.
+                    if (!reader.skipLine()) break;
+                    continue;
+                }
+
+                operation = reader.nextOperation();
+                int arity = CommandReader.arity(operation);
+                boolean complete = reader.readIntsOnLine(values, arity) == arity;
+                reader.skipLine();
+                if (!complete || operation == CommandReader.UNKNOWN) {
+                    continue;
+                }
+
+                Integer number = depots.get(depot[0]);
+                if (number == null) {
+                    number = depots.size();
+                    depots.put(depot[0], number);
+                }
+                rings[number % workers].offer(number, operation, values[0], values[1]);
+            }
+        } finally {
+            for (CommandRing ring : rings) {
+                ring.offer(0, CommandReader.END, 0, 0);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        for (DepotWorker worker : depotWorkers) {
+            if (worker.failure() != null) {
+                throw new IOException("A depot failed", worker.failure());
+            }
+        }
+
+        // Merge the outputs in increasing order of depot ID.
+        for (Map.Entry<Integer, Integer> entry : new TreeMap<Integer, Integer>(depots).entrySet()) {
+            int number = entry.getValue();
+            out.write(("depot " + entry.getKey() + "\n").getBytes(StandardCharsets.US_ASCII));
+            depotWorkers[number % workers].output(number).writeTo(out);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 /**
  * A class representing a node in a binary tree structure, where each node
  * contains a reference to a ParkingLot and pointers to left, right, and
- * parent nodes, as well as its height within the tree.
+ * parent nodes, as well as its height and subtree aggregates within the tree.
  */
 public class Node {
 
@@ -10,10 +10,13 @@ public class Node {
     Node left; // left child node
     Node parent; // parent node
     int height; // height of the node
+    long truckSum; // total number of trucks in the parking lots of this node's subtree
+    int properties; // properties of AVLTree that hold for at least one parking lot in this node's subtree
 
     /**
      * Constructs a new Node with a specified ParkingLot and parent node.
      * Initializes the left and right child nodes to null and sets the height to 0.
+     * The aggregates are computed by the tree when the node is inserted.
      *
      * @param pl     The ParkingLot associated with this node
      * @param parent The parent node of this node
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A class performing parsed operations on a company.
+ * Consecutive parking lot creations are collected and added together, so a company that starts with a batch of
+ * creations builds its tree in one pass. The collected parking lots are added before any other operation runs.
+ */
+public class OperationDispatcher {
+
+    private final Company company; // Company to perform the operations on
+    private final ArrayList<ParkingLot> creations; // Parking lots created since the last other operation
+
+    /**
+     * Constructs a dispatcher for a company.
+     *
+     * @param company the company to perform the operations on
+     */
+    public OperationDispatcher(Company company) {
+        this.company = company;
+        this.creations = new ArrayList<ParkingLot>();
+    }
+
+    /**
+     * Performs an operation.
+     *
+     * @param operation the operation, one of the operation constants of CommandReader
+     * @param first the first integer of the operation, if it takes one
+     * @param second the second integer of the operation, if it takes two
+     * @throws IOException if the output of the operation cannot be written
+     */
+    public void execute(int operation, int first, int second) throws IOException {
+
+        // Add the collected parking lots before any other operation observes them.
+        if (operation != CommandReader.CREATE_PARKING_LOT && operation != CommandReader.UNKNOWN) {
+            flush();
+        }
+
+        // Act accordingly to the operation.
+        switch (operation) {
+            case CommandReader.CREATE_PARKING_LOT:
+                creations.add(new ParkingLot(first, second));
+                break;
+            case CommandReader.DELETE_PARKING_LOT:
+                company.deleteParkingLot(first);
+                break;
+            case CommandReader.ADD_TRUCK:
+                company.addTruck(first, second);
+                break;
+            case CommandReader.READY:
+                company.ready(first);
+                break;
+            case CommandReader.LOAD:
+                company.load(first, second);
+                break;
+            case CommandReader.COUNT:
+                company.count(first);
+                break;
+            case CommandReader.COUNT_RANGE:
+                company.countRange(first, second);
+                break;
+            default:
+                // Tokens that are not operations are skipped.
+                break;
+        }
+    }
+
+    /**
+     * Adds the collected parking lots to the company.
+     */
+    public void flush() {
+        if (!creations.isEmpty()) {
+            company.addParkingLots(creations);
+            creations.clear();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A class collecting the output of the simulator in a reusable byte buffer.
+ * Integers are rendered digit by digit into the buffer, and the buffer is written to the stream in large blocks.
+ */
+public class OutputBuffer implements Closeable {
+
+    private final OutputStream out; // Stream the output is written to
+    private final byte[] buffer; // Bytes waiting to be written
+    private int position; // Number of bytes in the buffer
+
+    /**
+     * Constructs an output buffer over a stream.
+     *
+     * @param out the stream to write the output to
+     */
+    public OutputBuffer(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[1 << 16];
+    }
+
+    /**
+     * Writes a single ASCII character.
+     *
+     * @param c the character to write
+     * @return this output buffer
+     * @throws IOException if an I/O error occurs while flushing
+     */
+    public OutputBuffer write(char c) throws IOException {
+        if (position == buffer.length){
+            flushBuffer();
+        }
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Writes an ASCII string.
+     *
+     * @param s the string to write
+     * @return this output buffer
+     * @throws IOException if an I/O error occurs while flushing
+     */
+    public OutputBuffer write(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++){
+            write(s.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Writes an integer in decimal.
+     *
+     * @param value the integer to write
+     * @return this output buffer
+     * @throws IOException if an I/O error occurs while flushing
+     */
+    public OutputBuffer write(long value) throws IOException {
+
+        // At most 20 bytes are written, make sure they fit.
+        if (buffer.length - position < 20){
+            flushBuffer();
+        }
+
+        // Render negative numbers from the negated value, so Long.MIN_VALUE works too.
+        if (value >= 0){
+            value = -value;
+        }
+        else{
+            buffer[position++] = '-';
+        }
+
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10){
+            digits++;
+        }
+
+        int index = position + digits;
+        position = index;
+        do {
+            buffer[--index] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        return this;
+    }
+
+    /**
+     * Writes the buffered bytes to the stream.
+     *
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flushes the buffered bytes and closes the stream.
+     *
+     * @throws IOException if an I/O error occurs while writing
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+
+    /**
+     * Writes the buffered bytes to the stream without flushing the stream itself.
+     *
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private void flushBuffer() throws IOException {
+        if (position > 0){
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 /**
  * ParkingLot class manages a truck parking lot with two sections, a capacity constraint and truck limit.
+ * Both sections are kept in a single TruckQueue, the ready trucks in front of the waiting trucks.
  * It provides methods to accept and load the trucks. It handles the trucks between ready and waiting sections of the parking lot.
  */
 public class ParkingLot{
@@ -10,18 +11,12 @@ public class ParkingLot{
     // Maximum number of trucks that the parking lot can handle
     private int truckLimit;
 
-    // Current count of trucks in the parking lot
-    private int truckCount = 0;
-
-    // Queue of trucks which are waiting to be loaded
-    private TruckQueue waitingSection;
+    // Queue of the trucks in the parking lot, the ready section at its front and the waiting section behind it
+    private TruckQueue trucks;
 
     // Current count of trucks in the waiting section
     private int waitingTrucks = 0;
 
-    // Queue of trucks which are ready for loading
-    private TruckQueue readySection;
-
     // Current count of trucks in the ready section
     private int readyTrucks = 0;
 
@@ -34,50 +29,62 @@ public class ParkingLot{
     public ParkingLot(int capacityConstraint, int truckLimit) {
         this.capacityConstraint = capacityConstraint;
         this.truckLimit = truckLimit;
-        waitingSection = new TruckQueue(truckLimit);
-        readySection = new TruckQueue(truckLimit);
+        trucks = new TruckQueue(truckLimit);
     }
 
     /**
      * Moves the longest waiting truck from the waiting section to the ready section and returns its ID.
+     * Both sections are first in first out, so this only moves the boundary between them by one truck.
      *
      * @return the ID of the truck that is moved to the ready section
      */
     public int ready() {
-        Truck t = waitingSection.peek();
-        waitingSection.dequeue();
-        readySection.enqueue(t);
+        int id = trucks.getID(readyTrucks);
 
         waitingTrucks--;
         readyTrucks++;
-        return t.getID();
+        return id;
     }
 
     /**
-     * Loads a specified amount of load onto the truck which was ready for longest and returns it.
-     * After loading, the truck leaves the parking lot.
+     * Loads the trucks which were ready for longest, as many as the load amount needs, and moves them to a block.
+     * Every truck gets the capacity constraint worth of load, except the last one which gets what remains.
+     * A truck that reaches its maximum capacity is unloaded. After loading, the trucks leave the parking lot.
      *
-     * @param load the load amount to add to the truck
-     * @return the truck after loading it
+     * @param block the queue to append the loaded trucks to
+     * @param loadAmount the total amount of load to distribute
+     * @return the number of trucks loaded
      */
-    public Truck load(int load) {
-        Truck t = readySection.peek();
-        readySection.dequeue();
-        t.addLoad(load);
-
-        truckCount--;
-        readyTrucks--;
-        return t;
+    public int load(TruckQueue block, int loadAmount) {
+        long trucksNeeded = capacityConstraint > 0 ? (loadAmount + (long) capacityConstraint - 1) / capacityConstraint : readyTrucks;
+        int count = (int) Math.min(readyTrucks, trucksNeeded);
+
+        for (int i = 0; i < count; i++) {
+            int load = Math.min(loadAmount, capacityConstraint);
+            loadAmount -= load;
+
+            int maxCapacity = trucks.getMaxCapacity(0);
+            int newLoad = trucks.getLoad(0) + load;
+            if (newLoad == maxCapacity) {
+                newLoad = 0;
+            }
+            block.enqueue(trucks.getID(0), maxCapacity, newLoad);
+            trucks.dequeue();
+        }
+
+        readyTrucks -= count;
+        return count;
     }
 
     /**
      * Accepts a truck into the waiting section of the parking lot.
      *
-     * @param t the Truck to accept
+     * @param id the ID of the truck
+     * @param maxCapacity the maximum load capacity of the truck
+     * @param load the current load of the truck
      */
-    public void acceptTruck(Truck t) {
-        waitingSection.enqueue(t);
-        truckCount++;
+    public void acceptTruck(int id, int maxCapacity, int load) {
+        trucks.enqueue(id, maxCapacity, load);
         waitingTrucks++;
     }
 
@@ -100,12 +107,12 @@ public class ParkingLot{
     }
 
     /**
-     * Getter method for truckCount variable
+     * Getter method for the number of trucks in the parking lot
      *
      * @return the number of trucks in the parking lot
      */
     public int getTruckCount() {
-        return truckCount;
+        return trucks.size();
     }
 
     /**
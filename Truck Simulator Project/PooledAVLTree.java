@@ -0,0 +1,570 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class representing an AVL tree of parking lots whose nodes live in parallel arrays instead of Node objects.
+ * A node is an index into the arrays; index 0 is the null node, whose height is -1 and whose aggregates are empty.
+ * Freed nodes are kept in a free list linked through the parent array and reused by later insertions.
+ * Apart from the parking lots themselves, the tree is a handful of primitive arrays, so it is invisible to the garbage
+ * collector's object graph, and copying it is a few array copies.
+ */
+public class PooledAVLTree implements LotIndex {
+
+    private static final int NIL = 0; // Index of the null node
+
+    private int[] keys; // Capacity constraint of each node
+    private int[] left; // Left child of each node
+    private int[] right; // Right child of each node
+    private int[] parent; // Parent of each node, or the next free node for the nodes in the free list
+    private int[] height; // Height of each node
+    private int[] properties; // Properties that hold for at least one parking lot in the subtree of each node
+    private long[] truckSum; // Total number of trucks in the subtree of each node
+    private ParkingLot[] lots; // Parking lot of each node
+
+    private int root; // Root node of the tree
+    private int freeList; // First node of the free list, NIL if empty
+    private int used; // Number of array slots that were ever used, including the null node
+    private int size; // Number of parking lots in the tree
+
+    /**
+     * Constructs an empty tree with room for a few parking lots.
+     */
+    public PooledAVLTree() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty tree with room for the given number of parking lots before the arrays grow.
+     *
+     * @param capacity the initial number of parking lots
+     */
+    public PooledAVLTree(int capacity) {
+        int length = Math.max(2, capacity + 1);
+        keys = new int[length];
+        left = new int[length];
+        right = new int[length];
+        parent = new int[length];
+        height = new int[length];
+        properties = new int[length];
+        truckSum = new long[length];
+        lots = new ParkingLot[length];
+
+        height[NIL] = -1;
+        root = NIL;
+        freeList = NIL;
+        used = 1;
+    }
+
+    /**
+     * Constructs a copy of a tree. The copy shares the parking lots but not the structure.
+     *
+     * @param other the tree to copy
+     */
+    private PooledAVLTree(PooledAVLTree other) {
+        keys = other.keys.clone();
+        left = other.left.clone();
+        right = other.right.clone();
+        parent = other.parent.clone();
+        height = other.height.clone();
+        properties = other.properties.clone();
+        truckSum = other.truckSum.clone();
+        lots = other.lots.clone();
+        root = other.root;
+        freeList = other.freeList;
+        used = other.used;
+        size = other.size;
+    }
+
+    /**
+     * Copies the structure and the aggregates of the tree.
+     * The parking lots are shared, so the copy keeps the truck sums and properties they had at the time of the copy
+     * only until it is refreshed.
+     *
+     * @return the copy of the tree
+     */
+    public PooledAVLTree snapshot(){
+        return new PooledAVLTree(this);
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public boolean contains(int capacityConstraint){
+        return find(capacityConstraint) != NIL;
+    }
+
+    @Override
+    public ParkingLot get(int capacityConstraint){
+        return lots[find(capacityConstraint)];
+    }
+
+    /**
+     * Inserts a new parking lot into the tree.
+     * The tree is descended once to find the place of the node, then rebalanced upwards along the parent indices.
+     *
+     * @param pl the ParkingLot object to insert
+     */
+    @Override
+    public void insert(ParkingLot pl){
+        int key = pl.getCapacityConstraint();
+
+        // Find where to insert the node.
+        int p = NIL;
+        int current = root;
+        while (current != NIL){
+            p = current;
+            if (key < keys[current]){
+                current = left[current];
+            }
+            else if (key > keys[current]){
+                current = right[current];
+            }
+            // Don't take an action if a parking lot with the same capacity constraint already exists.
+            else{
+                return;
+            }
+        }
+
+        // Add the parking lot to the tree.
+        int node = allocate(pl, p);
+        size++;
+        if (p == NIL){
+            root = node;
+            return;
+        }
+        if (key < keys[p]){
+            left[p] = node;
+        }
+        else{
+            right[p] = node;
+        }
+
+        retrace(p);
+    }
+
+    /**
+     * Builds a perfectly balanced tree from sorted parking lots, taking the middle one as the root of every subtree.
+     *
+     * @param sorted the parking lots in increasing order of capacity constraint, without duplicates
+     * @throws IllegalStateException if the tree is not empty
+     */
+    @Override
+    public void build(List<ParkingLot> sorted){
+        if (root != NIL){
+            throw new IllegalStateException("Only an empty tree can be built");
+        }
+        while (keys.length < used + sorted.size()){
+            grow();
+        }
+        root = build(sorted, 0, sorted.size() - 1, NIL);
+        size = sorted.size();
+    }
+
+    /**
+     * Recursive helper method to build a balanced subtree from a range of sorted parking lots.
+     *
+     * @param sorted the sorted parking lots
+     * @param from the index of the first parking lot of the subtree
+     * @param to the index of the last parking lot of the subtree
+     * @param p the parent node of the subtree
+     * @return the root of the subtree, or NIL if the range is empty
+     */
+    private int build(List<ParkingLot> sorted, int from, int to, int p){
+        if (from > to){
+            return NIL;
+        }
+
+        int middle = (from + to) >>> 1;
+        int node = allocate(sorted.get(middle), p);
+        left[node] = build(sorted, from, middle - 1, node);
+        right[node] = build(sorted, middle + 1, to, node);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Deletes a parking lot from the tree based on its capacity constraint.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot to delete
+     */
+    @Override
+    public void delete(int capacityConstraint){
+        int node = find(capacityConstraint);
+        if (node == NIL){
+            return;
+        }
+        size--;
+
+        // If the node has two children, move the parking lot of the nextGreater node to it and unlink the nextGreater node instead.
+        int copiedTo = NIL;
+        if (left[node] != NIL && right[node] != NIL){
+            int nextGreater = right[node];
+            while (left[nextGreater] != NIL){
+                nextGreater = left[nextGreater];
+            }
+            keys[node] = keys[nextGreater];
+            lots[node] = lots[nextGreater];
+            copiedTo = node;
+            node = nextGreater;
+        }
+
+        // At this point, the node has at most one child, which replaces it.
+        int child = left[node] != NIL ? left[node] : right[node];
+        int p = parent[node];
+        if (child != NIL){
+            parent[child] = p;
+        }
+        replaceChild(p, node, child);
+        release(node);
+
+        retrace(p);
+
+        // The retrace may stop below the node that got a new parking lot, so its aggregates are refreshed separately.
+        if (copiedTo != NIL){
+            propagate(copiedTo);
+        }
+    }
+
+    @Override
+    public void refresh(int capacityConstraint){
+        propagate(find(capacityConstraint));
+    }
+
+    @Override
+    public ParkingLot findNextGreater(int capacityConstraint, int property){
+        return lots[findNextGreater(root, capacityConstraint, true, property)];
+    }
+
+    @Override
+    public ParkingLot findNextGreater(ParkingLot pl, int property){
+        return lots[findNextGreater(root, pl.getCapacityConstraint(), false, property)];
+    }
+
+    @Override
+    public ParkingLot findNextSmaller(int capacityConstraint, int property){
+        return lots[findNextSmaller(root, capacityConstraint, property)];
+    }
+
+    @Override
+    public long countTrucksAbove(int capacityConstraint){
+        int current = root;
+        long count = 0;
+
+        while (current != NIL){
+
+            // This node and its right subtree are above the bound, continue on the left.
+            if (capacityConstraint < keys[current]){
+                count += lots[current].getTruckCount() + truckSum[right[current]];
+                current = left[current];
+            }
+            else{
+                current = right[current];
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Finds the node of a capacity constraint.
+     *
+     * @param capacityConstraint the capacity constraint to look up
+     * @return the node, or NIL if there is no such parking lot
+     */
+    private int find(int capacityConstraint){
+        int current = root;
+        while (current != NIL && keys[current] != capacityConstraint){
+            current = capacityConstraint < keys[current] ? left[current] : right[current];
+        }
+        return current;
+    }
+
+    /**
+     * Recursive helper method to find the next greater node with a property in a subtree.
+     * Subtrees without the property are skipped, so the search visits O(log n) nodes.
+     *
+     * @param node the root of the subtree
+     * @param capacityConstraint the capacity constraint to compare
+     * @param inclusive whether a node with the given capacity constraint qualifies
+     * @param property the required property, or ANY
+     * @return the next greater node with the property in the subtree, or NIL if there is none
+     */
+    private int findNextGreater(int node, int capacityConstraint, boolean inclusive, int property){
+
+        if (node == NIL || (properties[node] & property) != property){
+            return NIL;
+        }
+
+        // The node and its left subtree are too small.
+        int key = keys[node];
+        if (key < capacityConstraint || (key == capacityConstraint && !inclusive)){
+            return findNextGreater(right[node], capacityConstraint, inclusive, property);
+        }
+
+        int found = findNextGreater(left[node], capacityConstraint, inclusive, property);
+        if (found != NIL){
+            return found;
+        }
+        if (LotIndex.hasProperty(lots[node], property)){
+            return node;
+        }
+        return findNextGreater(right[node], capacityConstraint, inclusive, property);
+    }
+
+    /**
+     * Recursive helper method to find the next smaller or equal node with a property in a subtree.
+     *
+     * @param node the root of the subtree
+     * @param capacityConstraint the capacity constraint to compare
+     * @param property the required property, or ANY
+     * @return the next smaller node with the property in the subtree, or NIL if there is none
+     */
+    private int findNextSmaller(int node, int capacityConstraint, int property){
+
+        if (node == NIL || (properties[node] & property) != property){
+            return NIL;
+        }
+
+        // The node and its right subtree are too large.
+        if (keys[node] > capacityConstraint){
+            return findNextSmaller(left[node], capacityConstraint, property);
+        }
+
+        int found = findNextSmaller(right[node], capacityConstraint, property);
+        if (found != NIL){
+            return found;
+        }
+        if (LotIndex.hasProperty(lots[node], property)){
+            return node;
+        }
+        return findNextSmaller(left[node], capacityConstraint, property);
+    }
+
+    /**
+     * Takes a node from the free list, or a new slot if the free list is empty, and fills it with a parking lot.
+     *
+     * @param pl the parking lot of the node
+     * @param p the parent of the node
+     * @return the new node
+     */
+    private int allocate(ParkingLot pl, int p){
+        int node;
+        if (freeList != NIL){
+            node = freeList;
+            freeList = parent[node];
+        }
+        else{
+            if (used == keys.length){
+                grow();
+            }
+            node = used++;
+        }
+
+        keys[node] = pl.getCapacityConstraint();
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = p;
+        height[node] = 0;
+        lots[node] = pl;
+        updateAggregates(node);
+        return node;
+    }
+
+    /**
+     * Puts a node that is no longer in the tree into the free list.
+     *
+     * @param node the node to free
+     */
+    private void release(int node){
+        lots[node] = null;
+        parent[node] = freeList;
+        freeList = node;
+    }
+
+    /**
+     * Doubles the length of the arrays.
+     */
+    private void grow(){
+        int length = keys.length * 2;
+        keys = Arrays.copyOf(keys, length);
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        parent = Arrays.copyOf(parent, length);
+        height = Arrays.copyOf(height, length);
+        properties = Arrays.copyOf(properties, length);
+        truckSum = Arrays.copyOf(truckSum, length);
+        lots = Arrays.copyOf(lots, length);
+    }
+
+    /**
+     * Walks from a node to the root, updating heights and aggregates and rotating the unbalanced nodes.
+     * The walk stops early once a subtree keeps both its height and its aggregates.
+     *
+     * @param node the lowest node whose subtree changed
+     */
+    private void retrace(int node){
+        while (node != NIL){
+            int oldHeight = height[node];
+            long oldTruckSum = truckSum[node];
+            int oldProperties = properties[node];
+            int p = parent[node];
+
+            update(node);
+            int top = balance(node);
+            if (top != node){
+                replaceChild(p, node, top);
+            }
+
+            if (height[top] == oldHeight && truckSum[top] == oldTruckSum && properties[top] == oldProperties){
+                return;
+            }
+            node = p;
+        }
+    }
+
+    /**
+     * Walks from a node to the root, updating the aggregates until a node keeps its aggregates.
+     *
+     * @param node the lowest node whose aggregates changed
+     */
+    private void propagate(int node){
+        while (node != NIL){
+            long oldTruckSum = truckSum[node];
+            int oldProperties = properties[node];
+            updateAggregates(node);
+            if (truckSum[node] == oldTruckSum && properties[node] == oldProperties){
+                return;
+            }
+            node = parent[node];
+        }
+    }
+
+    /**
+     * Replaces a child of a node, or the root if the node is NIL.
+     *
+     * @param p the parent whose child is replaced, or NIL for the root
+     * @param oldChild the child to replace
+     * @param newChild the new child, may be NIL
+     */
+    private void replaceChild(int p, int oldChild, int newChild){
+        if (p == NIL){
+            root = newChild;
+        }
+        else if (left[p] == oldChild){
+            left[p] = newChild;
+        }
+        else{
+            right[p] = newChild;
+        }
+    }
+
+    /**
+     * Updates the height and the aggregates of a node based on its children.
+     *
+     * @param node the node to be updated
+     */
+    private void update(int node){
+        height[node] = Math.max(height[left[node]], height[right[node]]) + 1;
+        updateAggregates(node);
+    }
+
+    /**
+     * Updates the truck sum and the properties of a node based on its children and its parking lot.
+     *
+     * @param node the node to be updated
+     */
+    private void updateAggregates(int node){
+        truckSum[node] = truckSum[left[node]] + truckSum[right[node]] + lots[node].getTruckCount();
+        properties[node] = properties[left[node]] | properties[right[node]] | LotIndex.properties(lots[node]);
+    }
+
+    /**
+     * Calculates the balance factor of a node.
+     *
+     * @param node the node whose balance factor is to be calculated
+     * @return the balance factor of the node
+     */
+    private int balanceFactor(int node){
+        return height[left[node]] - height[right[node]];
+    }
+
+    /**
+     * Performs a right rotation on the given node.
+     *
+     * @param node the node to rotate
+     * @return the new root after rotation
+     */
+    private int rightRotate(int node){
+        int leftChild = left[node];
+        int leftRightChild = right[leftChild];
+        left[node] = leftRightChild;
+        right[leftChild] = node;
+
+        parent[leftChild] = parent[node];
+        parent[node] = leftChild;
+        if (leftRightChild != NIL){
+            parent[leftRightChild] = node;
+        }
+
+        update(node);
+        update(leftChild);
+        return leftChild;
+    }
+
+    /**
+     * Performs a left rotation on the given node.
+     *
+     * @param node the node to rotate
+     * @return the new root after rotation
+     */
+    private int leftRotate(int node){
+        int rightChild = right[node];
+        int rightLeftChild = left[rightChild];
+        right[node] = rightLeftChild;
+        left[rightChild] = node;
+
+        parent[rightChild] = parent[node];
+        parent[node] = rightChild;
+        if (rightLeftChild != NIL){
+            parent[rightLeftChild] = node;
+        }
+
+        update(node);
+        update(rightChild);
+        return rightChild;
+    }
+
+    /**
+     * Balances a node whose children are balanced and whose height is up to date.
+     *
+     * @param node the node to balance
+     * @return the root of the balanced subtree, which takes the place of the node
+     */
+    private int balance(int node){
+        int balanceFactor = balanceFactor(node);
+
+        // Left-Left and Left-Right Cases
+        if (balanceFactor > 1){
+            if (balanceFactor(left[node]) < 0){
+                left[node] = leftRotate(left[node]);
+                parent[left[node]] = node;
+            }
+            return rightRotate(node);
+        }
+
+        // Right-Right and Right-Left Cases
+        if (balanceFactor < -1){
+            if (balanceFactor(right[node]) > 0){
+                right[node] = rightRotate(right[node]);
+                parent[right[node]] = node;
+            }
+            return leftRotate(node);
+        }
+
+        // Return the node if this node is balanced.
+        return node;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Timed simulation of a depot.
+ * Instead of replaying a command list, trucks arrive, parking lots get ready and trucks are loaded at random times,
+ * and a calendar queue feeds these events into the company in time order.
+ * Every parking lot has its own arrival, ready and load streams, and the times between the events of a stream are
+ * exponentially distributed with a configurable mean, so each stream is a Poisson process.
+ *
+ * Usage: java Simulation [--name=value...] [--tree=...] [--bitset[=...]] [--events-only]
+ * The options and their defaults:
+ *   --lots=1000        number of parking lots
+ *   --capacity=10000   greatest capacity constraint and truck capacity
+ *   --limit=8          greatest truck limit of a parking lot
+ *   --duration=1000000 simulated time to run for
+ *   --arrival=1000     mean time between truck arrivals at a parking lot
+ *   --ready=1000       mean time between ready operations on a parking lot
+ *   --load=2000        mean time between load operations on a parking lot
+ *   --count=100        mean time between count operations of the whole depot
+ *   --amount=40000     greatest load amount
+ *   --seed=1           seed of the random streams
+ *   --output=path      file to write the output of the operations to, discarded by default
+ * A mean of 0 turns the stream off. --events-only runs the same event schedule without the company,
+ * which measures the scheduler alone. The operation arguments come from a separate random stream, so skipping the
+ * operations leaves the event times unchanged.
+ */
+public class Simulation {
+
+    private static final int ARRIVAL = 0; // A truck arrives, the argument is the parking lot whose stream it belongs to
+    private static final int READY = 1; // A parking lot gets ready, the argument is the parking lot
+    private static final int LOAD = 2; // A parking lot is loaded, the argument is the parking lot
+    private static final int COUNT = 3; // The trucks of the depot are counted
+
+    private final CalendarQueue queue; // Scheduled events
+    private final SplittableRandom random; // Source of the event times and the capacity constraints
+    private final SplittableRandom arguments; // Source of the operation arguments, split off so they never shift the event times
+    private final double[] means; // Mean time between the events of a stream, by event type
+    private final int[] capacityConstraints; // Capacity constraint of each parking lot
+    private final int capacity; // Greatest capacity constraint and truck capacity
+    private final int amount; // Greatest load amount
+    private int truckID; // ID of the next arriving truck
+
+    /**
+     * Constructs a simulation and schedules the first event of every stream.
+     *
+     * @param means the mean time between the events of a stream, by event type
+     * @param lots the number of parking lots
+     * @param capacity the greatest capacity constraint and truck capacity
+     * @param amount the greatest load amount
+     * @param seed the seed of the random streams
+     */
+    public Simulation(double[] means, int lots, int capacity, int amount, long seed) {
+        this.queue = new CalendarQueue();
+        this.random = new SplittableRandom(seed);
+        this.arguments = random.split();
+        this.means = means;
+        this.capacity = capacity;
+        this.amount = amount;
+
+        this.capacityConstraints = new int[lots];
+        for (int i = 0; i < lots; i++){
+            capacityConstraints[i] = 1 + random.nextInt(capacity);
+            for (int type = ARRIVAL; type <= LOAD; type++){
+                scheduleNext(type, i);
+            }
+        }
+        scheduleNext(COUNT, 0);
+    }
+
+    /**
+     * Creates the parking lots of the simulation in a company.
+     *
+     * @param company the company
+     * @param limit the greatest truck limit of a parking lot
+     */
+    public void createParkingLots(Company company, int limit){
+        ArrayList<ParkingLot> lots = new ArrayList<ParkingLot>(capacityConstraints.length);
+        for (int cc : capacityConstraints){
+            lots.add(new ParkingLot(cc, 1 + arguments.nextInt(limit)));
+        }
+        company.addParkingLots(lots);
+    }
+
+    /**
+     * Runs the events up to a time, performing them on a company.
+     *
+     * @param company the company, or null to only run the schedule
+     * @param duration the time to stop at
+     * @return the number of events run
+     * @throws IOException if the output of an operation cannot be written
+     */
+    public long run(Company company, long duration) throws IOException {
+        long events = 0;
+        while (queue.poll() && queue.time() <= duration){
+            int type = queue.type();
+            int lot = queue.arg();
+            events++;
+
+            if (company != null){
+                switch (type){
+                    case ARRIVAL:
+                        company.addTruck(truckID++, 1 + arguments.nextInt(capacity));
+                        break;
+                    case READY:
+                        company.ready(capacityConstraints[lot]);
+                        break;
+                    case LOAD:
+                        company.load(capacityConstraints[lot], 1 + arguments.nextInt(amount));
+                        break;
+                    case COUNT:
+                        company.count(arguments.nextInt(capacity));
+                        break;
+                }
+            }
+
+            scheduleNext(type, lot);
+        }
+        return events;
+    }
+
+    /**
+     * Schedules the next event of a stream after an exponentially distributed time, at least one time unit later.
+     *
+     * @param type the type of the event
+     * @param lot the parking lot of the stream
+     */
+    private void scheduleNext(int type, int lot){
+        double mean = means[type];
+        if (mean <= 0){
+            return;
+        }
+        long delay = Math.max(1, Math.round(-mean * Math.log(1 - random.nextDouble())));
+        queue.schedule(queue.time() + delay, type, lot);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int lots = (int) option(args, "lots", 1000);
+        int capacity = (int) option(args, "capacity", 10000);
+        int limit = (int) option(args, "limit", 8);
+        long duration = option(args, "duration", 1000000);
+        double[] means = {
+                option(args, "arrival", 1000),
+                option(args, "ready", 1000),
+                option(args, "load", 2000),
+                option(args, "count", 100),
+        };
+        int amount = (int) option(args, "amount", 4L * capacity);
+        long seed = option(args, "seed", 1);
+
+        String outputPath = null;
+        boolean eventsOnly = false;
+        for (String arg : args) {
+            if (arg.startsWith("--output=")) outputPath = arg.substring("--output=".length());
+            else if (arg.equals("--events-only")) eventsOnly = true;
+        }
+
+        Simulation simulation = new Simulation(means, lots, capacity, amount, seed);
+        LotIndex tree = Main.createLotIndex(args);
+        OutputStream out = outputPath == null ? OutputStream.nullOutputStream() : new FileOutputStream(outputPath);
+        try (OutputBuffer writer = new OutputBuffer(out)) {
+            Company company = new Company(writer, tree, Main.parseBitsetProperties(args));
+            simulation.createParkingLots(company, limit);
+
+            long start = System.nanoTime();
+            long events = simulation.run(eventsOnly ? null : company, duration);
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf("events: %d%n", events);
+            System.out.printf("millis: %.2f%n", nanos / 1e6);
+            System.out.printf("events per second: %.0f%n", events / (nanos / 1e9));
+            System.out.printf("trucks in parking lots: %d%n", tree.countTrucksAbove(Integer.MIN_VALUE));
+        }
+    }
+
+    /**
+     * Reads a numeric option of the form --name=value.
+     *
+     * @param args the command line arguments
+     * @param name the name of the option
+     * @param defaultValue the value if the option is missing
+     * @return the value of the option
+     */
+    private static long option(String[] args, String name, long defaultValue){
+        String prefix = "--" + name + "=";
+        long value = defaultValue;
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                value = Long.parseLong(arg.substring(prefix.length()));
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the AVL tree searches with the bitset successor index.
+ * It first measures raw successor and predecessor searches on synthetic capacity domains,
+ * then replays the given input files with every search on the tree and every search on bitsets.
+ * Usage: java SuccessorBenchmark [rounds] [input files...]
+ */
+public class SuccessorBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        System.out.println("workload,index,domain,lots,millis");
+        for (int round = 0; round < rounds; round++) {
+            synthetic(1 << 16, 1 << 12);
+            synthetic(1 << 20, 1 << 16);
+            synthetic(1 << 24, 1 << 20);
+            synthetic(1 << 24, 1 << 12);
+
+            for (int i = 1; i < args.length; i++) {
+                replay(new File(args[i]));
+            }
+        }
+    }
+
+    /**
+     * Measures successor and predecessor searches over random parking lots in a capacity domain.
+     *
+     * @param domain the number of possible capacity constraints
+     * @param lots the number of parking lots
+     */
+    private static void synthetic(int domain, int lots) {
+        Random random = new Random(domain ^ lots);
+        AVLTree tree = new AVLTree();
+        BitsetSuccessorIndex bitset = new BitsetSuccessorIndex(domain);
+        for (int i = 0; i < lots; i++) {
+            int cc = random.nextInt(domain);
+            tree.insert(new ParkingLot(cc, 1));
+            bitset.add(cc);
+        }
+
+        int queries = 1 << 20;
+        int[] keys = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            keys[i] = random.nextInt(domain);
+        }
+
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (int key : keys) {
+            ParkingLot next = tree.findNextGreater(key, LotIndex.ANY);
+            ParkingLot prev = tree.findNextSmaller(key, LotIndex.ANY);
+            checksum += (next == null ? -1 : next.getCapacityConstraint()) + (prev == null ? -1 : prev.getCapacityConstraint());
+        }
+        long treeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long bitsetChecksum = 0;
+        for (int key : keys) {
+            bitsetChecksum += bitset.next(key) + bitset.prev(key);
+        }
+        long bitsetNanos = System.nanoTime() - start;
+
+        if (checksum != bitsetChecksum) {
+            throw new IllegalStateException("The tree and the bitset disagree on domain " + domain);
+        }
+        report("search", "avl", domain, lots, treeNanos);
+        report("search", "bitset", domain, lots, bitsetNanos);
+    }
+
+    /**
+     * Replays an input file with the tree searches and with the bitset searches.
+     *
+     * @param input the input file
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    private static void replay(File input) throws IOException {
+        int[] modes = {LotIndex.ANY, LotIndex.READY | LotIndex.WAITING | LotIndex.FREE};
+        String[] names = {"avl", "bitset"};
+
+        for (int i = 0; i < modes.length; i++) {
+            File output = File.createTempFile("successor-benchmark", ".txt");
+            output.deleteOnExit();
+
+            long start = System.nanoTime();
+            try (FileInputStream in = new FileInputStream(input); OutputBuffer writer = new OutputBuffer(new FileOutputStream(output))) {
+                Main.process(in, new Company(writer, modes[i]));
+            }
+            report(input.getName(), names[i], -1, -1, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Prints a measurement as a CSV row.
+     *
+     * @param workload the name of the workload
+     * @param index the name of the index
+     * @param domain the number of possible capacity constraints, -1 for replays
+     * @param lots the number of parking lots, -1 for replays
+     * @param nanos the elapsed time in nanoseconds
+     */
+    private static void report(String workload, String index, int domain, int lots, long nanos) {
+        System.out.printf("%s,%s,%d,%d,%.2f%n", workload, index, domain, lots, nanos / 1e6);
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A lot index over java.util.TreeMap, kept as a baseline for the trees of the simulator.
+ * The map has no subtree aggregates, so the searches for a property walk the parking lots one by one
+ * and the truck counts add up every parking lot above the bound.
+ */
+public class TreeMapLotIndex implements LotIndex {
+
+    private final TreeMap<Integer, ParkingLot> lots; // Parking lots by capacity constraint
+
+    /**
+     * Constructs an empty index.
+     */
+    public TreeMapLotIndex() {
+        this.lots = new TreeMap<Integer, ParkingLot>();
+    }
+
+    @Override
+    public void insert(ParkingLot pl){
+        lots.putIfAbsent(pl.getCapacityConstraint(), pl);
+    }
+
+    /**
+     * Fills the empty index with sorted parking lots.
+     *
+     * @param sorted the parking lots in increasing order of capacity constraint, without duplicates
+     * @throws IllegalStateException if the index is not empty
+     */
+    @Override
+    public void build(List<ParkingLot> sorted){
+        if (!lots.isEmpty()){
+            throw new IllegalStateException("Only an empty index can be built");
+        }
+        for (ParkingLot pl : sorted){
+            lots.put(pl.getCapacityConstraint(), pl);
+        }
+    }
+
+    @Override
+    public int size(){
+        return lots.size();
+    }
+
+    @Override
+    public void delete(int capacityConstraint){
+        lots.remove(capacityConstraint);
+    }
+
+    @Override
+    public ParkingLot get(int capacityConstraint){
+        return lots.get(capacityConstraint);
+    }
+
+    @Override
+    public boolean contains(int capacityConstraint){
+        return lots.containsKey(capacityConstraint);
+    }
+
+    /**
+     * Does nothing, since the map keeps no state derived from the trucks.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot that changed
+     */
+    @Override
+    public void refresh(int capacityConstraint){
+    }
+
+    @Override
+    public ParkingLot findNextGreater(int capacityConstraint, int property){
+        Map.Entry<Integer, ParkingLot> entry = lots.ceilingEntry(capacityConstraint);
+        while (entry != null && !LotIndex.hasProperty(entry.getValue(), property)){
+            entry = lots.higherEntry(entry.getKey());
+        }
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public ParkingLot findNextGreater(ParkingLot pl, int property){
+        if (pl.getCapacityConstraint() == Integer.MAX_VALUE){
+            return null;
+        }
+        return findNextGreater(pl.getCapacityConstraint() + 1, property);
+    }
+
+    @Override
+    public ParkingLot findNextSmaller(int capacityConstraint, int property){
+        Map.Entry<Integer, ParkingLot> entry = lots.floorEntry(capacityConstraint);
+        while (entry != null && !LotIndex.hasProperty(entry.getValue(), property)){
+            entry = lots.lowerEntry(entry.getKey());
+        }
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public long countTrucksAbove(int capacityConstraint){
+        long count = 0;
+        for (ParkingLot pl : lots.tailMap(capacityConstraint, false).values()){
+            count += pl.getTruckCount();
+        }
+        return count;
+    }
+}
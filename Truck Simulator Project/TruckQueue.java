@@ -1,53 +1,140 @@
 /**
- * TruckQueue class is a circular queue implementation that manages a fixed number of trucks.
+ * TruckQueue class is a circular queue of trucks stored in primitive arrays.
+ * Each truck is an ID, a maximum capacity and a current load in three parallel int arrays.
+ * The arrays start small and double on demand, up to the limit of the queue.
  */
 public class TruckQueue {
 
-    // front of the queue
+    // initial length of the arrays
+    private static final int INITIAL_CAPACITY = 4;
+
+    // maximum number of trucks the queue can hold
+    private final int limit;
+    // index of the front of the queue
     private int front;
-    // back of the queue
-    private int rear;
-    // capacity of the queue
-    private int capacity;
-    // array for circular queue
-    private Truck[] queue;
+    // number of trucks in the queue
+    private int size;
+    // IDs of the trucks
+    private int[] ids;
+    // maximum capacities of the trucks
+    private int[] maxCapacities;
+    // current loads of the trucks
+    private int[] loads;
 
     /**
      * Constructor for TruckQueue.
      *
-     * @param capacity the maximum number of trucks the queue can hold
+     * @param limit the maximum number of trucks the queue can hold
      */
-    TruckQueue(int capacity) {
-        this.front = 0;
-        this.rear = -1;
-        this.capacity = capacity;
-        this.queue = new Truck[capacity];
+    TruckQueue(int limit) {
+        this.limit = limit;
+        int capacity = Math.max(0, Math.min(limit, INITIAL_CAPACITY));
+        this.ids = new int[capacity];
+        this.maxCapacities = new int[capacity];
+        this.loads = new int[capacity];
     }
 
     /**
      * Adds a truck to the end of the queue.
      *
-     * @param t the Truck to enqueue
+     * @param id the ID of the truck
+     * @param maxCapacity the maximum capacity of the truck
+     * @param load the current load of the truck
      */
-    void enqueue(Truck t) {
-        rear = (rear + 1) % capacity;
-        queue[rear] = t;
+    void enqueue(int id, int maxCapacity, int load) {
+        if (size == ids.length) {
+            grow();
+        }
+
+        int rear = (front + size) % ids.length;
+        ids[rear] = id;
+        maxCapacities[rear] = maxCapacity;
+        loads[rear] = load;
+        size++;
     }
 
     /**
      * Removes the truck at the front of the queue.
      */
     void dequeue() {
-        queue[front] = null;
-        front = (front + 1) % capacity;
+        front = (front + 1) % ids.length;
+        size--;
+    }
+
+    /**
+     * Removes every truck from the queue.
+     */
+    void clear() {
+        front = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of trucks in the queue.
+     *
+     * @return the size of the queue
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ID of a truck.
+     *
+     * @param position the position of the truck counted from the front of the queue
+     * @return the ID of the truck
+     */
+    int getID(int position) {
+        return ids[(front + position) % ids.length];
+    }
+
+    /**
+     * Returns the maximum capacity of a truck.
+     *
+     * @param position the position of the truck counted from the front of the queue
+     * @return the maximum capacity of the truck
+     */
+    int getMaxCapacity(int position) {
+        return maxCapacities[(front + position) % ids.length];
+    }
+
+    /**
+     * Returns the current load of a truck.
+     *
+     * @param position the position of the truck counted from the front of the queue
+     * @return the current load of the truck
+     */
+    int getLoad(int position) {
+        return loads[(front + position) % ids.length];
+    }
+
+    /**
+     * Doubles the length of the arrays, up to the limit of the queue, and moves the front of the queue to index 0.
+     */
+    private void grow() {
+        if (size == limit) {
+            throw new IllegalStateException("Truck queue is full");
+        }
+
+        int capacity = (int) Math.min(limit, Math.max(INITIAL_CAPACITY, ids.length * 2L));
+        ids = unwrap(ids, capacity);
+        maxCapacities = unwrap(maxCapacities, capacity);
+        loads = unwrap(loads, capacity);
+        front = 0;
     }
 
     /**
-     * Returns the truck at the front of the queue without removing it.
+     * Copies the trucks of an array in queue order into a longer array.
      *
-     * @return the Truck at the front of the queue
+     * @param array the array to copy
+     * @param capacity the length of the new array
+     * @return the new array
      */
-    Truck peek() {
-        return queue[front];
+    private int[] unwrap(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        int first = Math.min(size, array.length - front);
+        System.arraycopy(array, front, grown, 0, first);
+        System.arraycopy(array, 0, grown, first, size - first);
+        return grown;
     }
 }
@@ -0,0 +1,121 @@
+/**
+ * Truck counts of a company by capacity constraint, published in versions for concurrent readers.
+ * The counts are kept in a persistent binary trie over the 32 bits of the capacity constraints. The single writer
+ * copies the path to every count it changes, and publishes the new root with a volatile write, so readers take
+ * the latest snapshot without locking and the writer never waits for them.
+ * Within the unpublished version, nodes that were already copied are modified in place, so a company operation
+ * that changes many counts copies each path only once.
+ */
+public class VersionedTruckCounts {
+
+    private CountNode root; // Root of the unpublished version, null if there are no trucks
+    private long version; // Version being built, one more than the last published version
+    private boolean changed; // Whether the unpublished version differs from the published one
+    private volatile CountSnapshot published; // Last published version
+
+    /**
+     * Constructs empty counts, with an empty version 0 published.
+     */
+    public VersionedTruckCounts() {
+        this.version = 1;
+        this.published = new CountSnapshot(null, 0);
+    }
+
+    /**
+     * Maps a capacity constraint to a trie key whose unsigned order is the signed order of the capacity constraints.
+     *
+     * @param capacityConstraint the capacity constraint
+     * @return the key
+     */
+    static int key(int capacityConstraint){
+        return capacityConstraint ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Sets the number of trucks of a parking lot in the unpublished version. Called by the writer only.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot
+     * @param trucks the number of trucks, 0 for a deleted parking lot
+     */
+    public void set(int capacityConstraint, long trucks){
+        if (get(capacityConstraint) != trucks){
+            root = set(root, key(capacityConstraint), 31, trucks);
+            changed = true;
+        }
+    }
+
+    /**
+     * Recursive helper method to set a count in a subtrie, copying the nodes of published versions on the way.
+     *
+     * @param node the root of the subtrie, or null if it is empty
+     * @param key the key of the parking lot
+     * @param bit the bit of the key that selects the child of the node, -1 at a leaf
+     * @param trucks the number of trucks
+     * @return the new root of the subtrie, or null if it has no trucks left
+     */
+    private CountNode set(CountNode node, int key, int bit, long trucks){
+        if (node == null || node.version != version){
+            node = new CountNode(node, version);
+        }
+
+        if (bit < 0){
+            node.sum = trucks;
+        }
+        else if ((key >>> bit & 1) == 0){
+            node.left = set(node.left, key, bit - 1, trucks);
+        }
+        else{
+            node.right = set(node.right, key, bit - 1, trucks);
+        }
+
+        if (bit >= 0){
+            node.sum = (node.left == null ? 0 : node.left.sum) + (node.right == null ? 0 : node.right.sum);
+        }
+        return node.sum == 0 ? null : node;
+    }
+
+    /**
+     * Gets the number of trucks of a parking lot in the unpublished version. Called by the writer only.
+     *
+     * @param capacityConstraint the capacity constraint of the parking lot
+     * @return the number of trucks
+     */
+    public long get(int capacityConstraint){
+        int key = key(capacityConstraint);
+        CountNode node = root;
+        for (int bit = 31; node != null && bit >= 0; bit--){
+            node = (key >>> bit & 1) == 0 ? node.left : node.right;
+        }
+        return node == null ? 0 : node.sum;
+    }
+
+    /**
+     * Publishes the unpublished version if it changed, after which its nodes are never modified. Called by the writer only.
+     */
+    public void publish(){
+        if (changed){
+            published = new CountSnapshot(root, version);
+            version++;
+            changed = false;
+        }
+    }
+
+    /**
+     * Gets the number of the last published version from the writer's own bookkeeping, without reading the snapshot.
+     * Called by the writer only.
+     *
+     * @return the version of the last publish
+     */
+    public long publishedVersion(){
+        return version - 1;
+    }
+
+    /**
+     * Gets the last published version. Can be called from any thread.
+     *
+     * @return the snapshot
+     */
+    public CountSnapshot snapshot(){
+        return published;
+    }
+}